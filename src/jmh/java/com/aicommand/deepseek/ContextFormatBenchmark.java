@@ -0,0 +1,44 @@
+package com.aicommand.deepseek;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 游戏上下文格式化基准 - 与 GameDataCollector.generateGameContext 走同一个格式化器，只是快照来自假数据
+ * Game context formatting benchmark - Runs the same formatter as GameDataCollector.generateGameContext, on a fixture snapshot
+ */
+@State(Scope.Thread)
+public class ContextFormatBenchmark {
+    @Param({"COMPACT", "VERBOSE"})
+    public Config.ContextFormat format;
+
+    @Param({"0", "80"})
+    public int tokenBudget;
+
+    @Param({"8", "36"})
+    public int inventoryItems;
+
+    // 交替使用两个快照，格式化器的分段缓存每次都会失效 / Alternate two snapshots so the formatter's section cache misses every time
+    private GameSnapshot[] snapshots;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Config.contextFormat = format;
+        Config.contextTokenBudget = tokenBudget;
+        snapshots = new GameSnapshot[]{GameFixtures.snapshot(inventoryItems, 12), GameFixtures.snapshot(inventoryItems, 12)};
+    }
+
+    @Benchmark
+    public String format() {
+        return GameContextFormatter.format(snapshots[next++ & 1], GameFixtures.REQUEST);
+    }
+
+    @Benchmark
+    public String formatUnchanged() {
+        return GameContextFormatter.format(snapshots[0], GameFixtures.REQUEST);
+    }
+}
@@ -0,0 +1,133 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.time.Duration;
+
+/**
+ * 基准测试用的假数据 - 不需要运行中的 Minecraft，按玩家背包和周围环境的大小生成典型的快照和响应
+ * Benchmark fixtures - Needs no running Minecraft; builds typical snapshots and responses sized like a real player's inventory and surroundings
+ */
+public final class GameFixtures {
+    private static final String[] ITEMS = {"minecraft:diamond_sword", "minecraft:iron_pickaxe", "minecraft:oak_planks", "minecraft:torch",
+            "minecraft:cooked_beef", "minecraft:stone", "minecraft:cobblestone", "minecraft:bread", "minecraft:water_bucket", "minecraft:shield"};
+    private static final String[] BLOCKS = {"minecraft:grass_block", "minecraft:dirt", "minecraft:stone", "minecraft:oak_log",
+            "minecraft:oak_leaves", "minecraft:water", "minecraft:sand", "minecraft:gravel", "minecraft:coal_ore", "minecraft:iron_ore"};
+
+    public static final String REQUEST = "build a small stone house with a door near me and make it day";
+
+    private GameFixtures() {
+    }
+
+    /**
+     * 生成快照；每次调用都返回新的数据对象，所以不会命中格式化器的分段缓存 / Build a snapshot; every call returns new data objects, so the formatter's section cache never hits
+     *
+     * @param items  背包中的物品数 / Number of inventory items
+     * @param blocks 周围的方块种类数 / Number of nearby block kinds
+     */
+    public static GameSnapshot snapshot(int items, int blocks) {
+        GameDataCollector.PlayerData player = new GameDataCollector.PlayerData();
+        player.playerName = "Steve";
+        player.health = 17.5f;
+        player.maxHealth = 20;
+        player.foodLevel = 14;
+        player.experienceLevel = 23;
+        player.gameMode = "creative";
+        player.positionX = 128;
+        player.positionY = 71;
+        player.positionZ = -342;
+        player.facing = "north";
+
+        GameDataCollector.InventoryData inventory = new GameDataCollector.InventoryData();
+        inventory.mainHandItem = "minecraft:diamond_sword x1";
+        inventory.offHandItem = "minecraft:shield x1";
+        for (int i = 0; i < items; i++) {
+            inventory.inventoryItems.add(ITEMS[i % ITEMS.length] + " x" + (i % 64 + 1));
+        }
+
+        GameDataCollector.WorldData world = new GameDataCollector.WorldData();
+        world.dimensionName = "minecraft:overworld";
+        world.dayTime = 13500;
+        world.isDay = false;
+        world.biomeName = "minecraft:plains";
+        world.blockBelow = "minecraft:grass_block";
+        for (int i = 0; i < blocks; i++) {
+            world.nearbyBlocks.add(BLOCKS[i % BLOCKS.length] + " x" + (blocks - i) * 7);
+        }
+        world.nearbyFeatures.add("minecraft:water 6 blocks east");
+        world.nearbyFeatures.add("minecraft:coal_ore 11 blocks below");
+        return new GameSnapshot(player, inventory, world, 0);
+    }
+
+    public static ProviderSettings settings() {
+        return new ProviderSettings("DeepSeek", "https://api.deepseek.com", "/v1/chat/completions", "deepseek-chat", "sk-benchmark",
+                true, Duration.ofSeconds(10), Duration.ofSeconds(30), 1000, false, 0, 0);
+    }
+
+    /**
+     * 模型回复，每行一条指令，带有模型常见的空行和缺失的斜杠 / Model reply, one command per line, with the blank lines and missing slashes models often produce
+     */
+    public static String reply(int commands) {
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < commands; i++) {
+            if (i % 5 == 4) {
+                reply.append('\n');
+            }
+            reply.append(i % 3 == 0 ? "  setblock" : "/setblock").append(" ~").append(i % 8).append(" ~").append(i / 64).append(" ~")
+                    .append(i / 8 % 8).append(" minecraft:stone\n");
+        }
+        return reply.toString();
+    }
+
+    /**
+     * 非流式 chat/completions 响应体 / Non-streamed chat/completions response body
+     */
+    public static String response(String content) {
+        return response(content, false);
+    }
+
+    /**
+     * 非流式响应体；verbose 时带上逐令牌的 logprobs 等服务商常见的附加字段 / Non-streamed response body; verbose adds per-token logprobs and the other extras providers often send
+     */
+    public static String response(String content, boolean verbose) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "assistant");
+        message.addProperty("content", content);
+        JsonObject choice = new JsonObject();
+        choice.addProperty("index", 0);
+        choice.add("message", message);
+        choice.addProperty("finish_reason", "stop");
+        if (verbose) {
+            JsonArray tokens = new JsonArray();
+            for (int i = 0; i < content.length(); i += 4) {
+                JsonObject token = new JsonObject();
+                token.addProperty("token", content.substring(i, Math.min(content.length(), i + 4)));
+                token.addProperty("logprob", -0.0123 * (i % 17));
+                token.add("top_logprobs", new JsonArray());
+                tokens.add(token);
+            }
+            JsonObject logprobs = new JsonObject();
+            logprobs.add("content", tokens);
+            choice.add("logprobs", logprobs);
+        }
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+
+        JsonObject usage = new JsonObject();
+        usage.addProperty("prompt_tokens", 812);
+        usage.addProperty("completion_tokens", TokenEstimator.estimateTokens(content));
+        usage.addProperty("prompt_cache_hit_tokens", 640);
+        JsonObject response = new JsonObject();
+        response.addProperty("id", "chatcmpl-benchmark");
+        response.addProperty("object", "chat.completion");
+        response.addProperty("model", "deepseek-chat");
+        response.add("choices", choices);
+        response.add("usage", usage);
+        if (verbose) {
+            response.addProperty("created", 1760000000L);
+            response.addProperty("system_fingerprint", "fp_benchmark");
+        }
+        return response.toString();
+    }
+}
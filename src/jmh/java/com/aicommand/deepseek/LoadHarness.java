@@ -0,0 +1,140 @@
+package com.aicommand.deepseek;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 离线压测 - 启动本机的模拟服务，经由真实的 DeepSeekClient / OpenAIClient 并发发起 generateCommand，不消耗 API 额度
+ * Offline load test - Starts a local mock server and drives concurrent generateCommand calls through the real DeepSeekClient / OpenAIClient, without spending API quota
+ *
+ * <p>参数为 key=value，例如 ./gradlew loadTest -Pargs="requests=2000 concurrency=128 stream=true rateLimited=0.02"。
+ * Arguments are key=value, for example ./gradlew loadTest -Pargs="requests=2000 concurrency=128 stream=true rateLimited=0.02".</p>
+ */
+public class LoadHarness {
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("provider", "deepseek"),      // deepseek | openai
+            Map.entry("requests", "500"),
+            Map.entry("concurrency", "32"),
+            Map.entry("stream", "false"),
+            Map.entry("latency", "300"),            // 首字节延迟中位数，毫秒 / Median first-byte delay, ms
+            Map.entry("sigma", "0.5"),              // 对数正态 sigma，0 为固定延迟 / Log-normal sigma, 0 for a fixed delay
+            Map.entry("chunkDelay", "15"),          // 流式数据块间隔，毫秒 / Gap between streamed chunks, ms
+            Map.entry("errors", "0"),               // 500 的比例 / Fraction answered with 500
+            Map.entry("rateLimited", "0"),          // 429 的比例 / Fraction answered with 429
+            Map.entry("retryAfter", "1"),
+            Map.entry("retries", "3"),
+            Map.entry("rpm", "0"),                  // 客户端每分钟请求数，0 为不限 / Client requests per minute, 0 for unlimited
+            Map.entry("tpm", "0"),
+            Map.entry("timeout", "30"),             // 请求截止时间，秒 / Request deadline, seconds
+            Map.entry("script", ""));               // 回复脚本，用 --- 分隔 / Reply script, separated by ---
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                System.err.println("Unknown argument " + arg + ", expected one of " + DEFAULTS.keySet());
+                System.exit(2);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        int requests = Integer.parseInt(options.get("requests"));
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        boolean stream = Boolean.parseBoolean(options.get("stream"));
+        boolean openAi = options.get("provider").equalsIgnoreCase("openai");
+
+        Config.retryMaxAttempts = Integer.parseInt(options.get("retries"));
+        MockChatServer.Behaviour behaviour = new MockChatServer.Behaviour(
+                Long.parseLong(options.get("latency")), Double.parseDouble(options.get("sigma")), Long.parseLong(options.get("chunkDelay")),
+                Double.parseDouble(options.get("errors")), Double.parseDouble(options.get("rateLimited")),
+                Integer.parseInt(options.get("retryAfter")), replies(options.get("script")));
+
+        String endpoint = openAi ? OpenAIClient.DEFAULT_CHAT_ENDPOINT : DeepSeekClient.DEFAULT_CHAT_ENDPOINT;
+        try (MockChatServer server = new MockChatServer(endpoint, behaviour)) {
+            ProviderSettings settings = new ProviderSettings(openAi ? "OpenAI (mock)" : "DeepSeek (mock)", server.baseUrl(), endpoint,
+                    openAi ? OpenAIClient.DEFAULT_MODEL : DeepSeekClient.DEFAULT_MODEL, "sk-load-test", true, Duration.ofSeconds(10),
+                    Duration.ofSeconds(Long.parseLong(options.get("timeout"))), 1000, stream,
+                    Integer.parseInt(options.get("rpm")), Integer.parseInt(options.get("tpm")));
+            HttpClient httpClient = ProviderRegistry.httpClient(settings);
+            CommandProvider client = openAi ? new OpenAIClient(httpClient, settings) : new DeepSeekClient(httpClient, settings);
+
+            System.out.printf("Driving %d requests at concurrency %d against %s%s (%s)%n", requests, concurrency, settings.baseUrl(),
+                    endpoint, stream ? "streamed" : "not streamed");
+            run(client, server, requests, concurrency);
+        }
+        BackgroundExecutor.executor().shutdownNow();
+    }
+
+    private static List<String> replies(String script) throws IOException {
+        if (script.isEmpty()) {
+            return List.of(GameFixtures.reply(1), GameFixtures.reply(4), GameFixtures.reply(20));
+        }
+        List<String> replies = new ArrayList<>();
+        for (String reply : Files.readString(Path.of(script), StandardCharsets.UTF_8).split("(?m)^---$")) {
+            if (!reply.isBlank()) {
+                replies.add(reply.strip());
+            }
+        }
+        return replies;
+    }
+
+    private static void run(CommandProvider client, MockChatServer server, int requests, int concurrency) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        int threadsBefore = threads.getThreadCount();
+        LatencyTracker latency = new LatencyTracker(requests);
+        LatencyTracker firstLine = new LatencyTracker(requests);
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore permits = new Semaphore(concurrency);
+        List<CompletableFuture<?>> futures = new ArrayList<>(requests);
+        GameSnapshot snapshot = GameFixtures.snapshot(36, 12);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            permits.acquire();
+            long requestStart = System.nanoTime();
+            AtomicInteger lines = new AtomicInteger();
+            CompletableFuture<Completion> future = client.generateCommand(snapshot, GameFixtures.REQUEST, line -> {
+                if (lines.getAndIncrement() == 0) {
+                    firstLine.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart));
+                }
+            });
+            futures.add(future.whenComplete((completion, throwable) -> {
+                latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart));
+                if (throwable != null || completion.isError()) {
+                    failed.incrementAndGet();
+                }
+                permits.release();
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(throwable -> null).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Completed %d requests in %.2f s: %.1f req/s, %d failed%n", requests, seconds, requests / seconds, failed.get());
+        System.out.printf("Latency ms: p50=%d p90=%d p99=%d max=%d%n",
+                latency.percentile(50), latency.percentile(90), latency.percentile(99), latency.percentile(100));
+        if (firstLine.count() > 0) {
+            System.out.printf("First command ms: p50=%d p90=%d p99=%d%n", firstLine.percentile(50), firstLine.percentile(90), firstLine.percentile(99));
+        }
+        System.out.printf("Server: %d requests (%d answered 500, %d answered 429), peak %d in flight%n",
+                server.requests(), server.errors(), server.rateLimited(), server.peakInFlight());
+        System.out.printf("Connections: %d for %d requests (%.1f requests per connection)%n",
+                server.connections(), server.requests(), server.requests() / (double) Math.max(1, server.connections()));
+        System.out.printf("Platform threads: %d before, %d peak, %d after%n", threadsBefore, threads.getPeakThreadCount(), threads.getThreadCount());
+        MetricsRegistry.describe().forEach(System.out::println);
+    }
+}
@@ -0,0 +1,206 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟的 OpenAI 兼容服务 - 在本机端口上应答 chat/completions，可配置延迟分布、流式回复、错误和 429 注入
+ * Mock OpenAI-compatible server - Answers chat/completions on a local port with configurable latency, streamed replies and injected errors and 429s
+ *
+ * <p>回复按脚本轮流返回。服务器记录见过的客户端连接，用来检查连接复用。
+ * Replies are taken from the script in turn. The server records every client connection it sees, to check connection reuse.</p>
+ */
+public class MockChatServer implements AutoCloseable {
+    /**
+     * 服务器行为 / Server behaviour
+     *
+     * @param latencyMillis     首字节前的延迟中位数 / Median delay before the first byte
+     * @param latencySigma      对数正态分布的 sigma，0 表示固定延迟 / Sigma of the log-normal distribution; 0 gives a fixed delay
+     * @param chunkDelayMillis  流式回复中两个数据块之间的间隔 / Gap between two chunks of a streamed reply
+     * @param errorRate         返回 500 的比例 / Fraction of requests answered with 500
+     * @param rateLimitRate     返回 429 的比例 / Fraction of requests answered with 429
+     * @param retryAfterSeconds 429 响应的 Retry-After / Retry-After of the 429 responses
+     * @param replies           轮流返回的回复 / Replies returned in turn
+     */
+    public record Behaviour(long latencyMillis, double latencySigma, long chunkDelayMillis, double errorRate, double rateLimitRate,
+                            int retryAfterSeconds, List<String> replies) {
+    }
+
+    private static final int CHUNK_CHARS = 12;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Behaviour behaviour;
+    private final AtomicInteger nextReply = new AtomicInteger();
+    private final Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    public MockChatServer(String chatEndpoint, Behaviour behaviour) throws IOException {
+        this.behaviour = behaviour;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.createContext(chatEndpoint, this::handleChat);
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    public long rateLimited() {
+        return rateLimited.get();
+    }
+
+    /**
+     * 见过的不同客户端连接数 / Number of distinct client connections seen
+     */
+    public int connections() {
+        return connections.size();
+    }
+
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * 预热用的 HEAD / 等其它请求 / Other requests such as the warm-up HEAD /
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress());
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress());
+        requests.incrementAndGet();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            JsonObject request = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+            boolean stream = request.has("stream") && request.get("stream").getAsBoolean();
+            int promptTokens = body.length / 4;
+
+            Thread.sleep(latency());
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < behaviour.rateLimitRate()) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", Integer.toString(behaviour.retryAfterSeconds()));
+                send(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"rate_limit_error\"}}");
+                return;
+            }
+            if (roll < behaviour.rateLimitRate() + behaviour.errorRate()) {
+                errors.incrementAndGet();
+                send(exchange, 500, "{\"error\":{\"message\":\"Injected failure\",\"type\":\"server_error\"}}");
+                return;
+            }
+
+            String reply = behaviour.replies().get(Math.floorMod(nextReply.getAndIncrement(), behaviour.replies().size()));
+            if (stream) {
+                stream(exchange, reply, promptTokens);
+            } else {
+                send(exchange, 200, GameFixtures.response(reply));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private long latency() {
+        if (behaviour.latencySigma() <= 0) {
+            return behaviour.latencyMillis();
+        }
+        return Math.round(behaviour.latencyMillis() * Math.exp(behaviour.latencySigma() * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * 以 text/event-stream 分块发送回复，最后一块带上用量 / Send the reply as a text/event-stream in chunks, the last one carrying the usage
+     */
+    private void stream(HttpExchange exchange, String reply, int promptTokens) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int start = 0; start < reply.length(); start += CHUNK_CHARS) {
+            if (start > 0 && behaviour.chunkDelayMillis() > 0) {
+                Thread.sleep(behaviour.chunkDelayMillis());
+            }
+            JsonObject delta = new JsonObject();
+            delta.addProperty("content", reply.substring(start, Math.min(reply.length(), start + CHUNK_CHARS)));
+            JsonObject choice = new JsonObject();
+            choice.addProperty("index", 0);
+            choice.add("delta", delta);
+            writeEvent(out, chunk(choice).toString());
+        }
+        JsonObject usage = new JsonObject();
+        usage.addProperty("prompt_tokens", promptTokens);
+        usage.addProperty("completion_tokens", TokenEstimator.estimateTokens(reply));
+        JsonObject last = chunk(null);
+        last.add("usage", usage);
+        writeEvent(out, last.toString());
+        writeEvent(out, "[DONE]");
+    }
+
+    private static JsonObject chunk(JsonObject choice) {
+        JsonObject chunk = new JsonObject();
+        chunk.addProperty("id", "chatcmpl-mock");
+        chunk.addProperty("object", "chat.completion.chunk");
+        JsonArray choices = new JsonArray();
+        if (choice != null) {
+            choices.add(choice);
+        }
+        chunk.add("choices", choices);
+        return chunk;
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
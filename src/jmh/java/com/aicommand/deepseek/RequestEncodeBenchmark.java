@@ -0,0 +1,44 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 请求体构建基准 - sendChatRequest 使用的预编译编码器，对照以前的 JsonObject 构建加 Gson 序列化
+ * Request body benchmark - The precompiled encoder used by sendChatRequest, against the previous JsonObject building plus Gson serialization
+ */
+@State(Scope.Thread)
+public class RequestEncodeBenchmark {
+    private final Gson gson = new Gson();
+    private ProviderSettings settings;
+    private String gameContext;
+
+    @Setup
+    public void setup() {
+        Config.contextFormat = Config.ContextFormat.COMPACT;
+        Config.contextTokenBudget = 0;
+        settings = GameFixtures.settings();
+        gameContext = GameContextFormatter.format(GameFixtures.snapshot(36, 12), null);
+    }
+
+    @Benchmark
+    public RequestBodyEncoder.Encoded encode() {
+        return RequestBodyEncoder.encode(settings, gameContext, GameFixtures.REQUEST, false);
+    }
+
+    @Benchmark
+    public RequestBodyEncoder.Encoded encodeStreamed() {
+        return RequestBodyEncoder.encode(settings, gameContext, GameFixtures.REQUEST, true);
+    }
+
+    // 以前的做法：建树、序列化成字符串、再编码成UTF-8 / The previous way: build a tree, serialize it to a String, then encode it as UTF-8
+    @Benchmark
+    public byte[] encodeTree() {
+        return gson.toJson(RequestBodyEncoder.tree(settings, gameContext, GameFixtures.REQUEST, false)).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,61 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 响应处理基准 - 解析 choices[0].message.content，再按界面的方式拆分和规范化指令行
+ * Response handling benchmark - Parses choices[0].message.content, then splits and normalizes the command lines the way the screen does
+ *
+ * <p>parseTree 是改为流式解析之前的做法（整个响应体转成字符串再建树），作为对照。
+ * parseTree is how responses were parsed before the streaming parser (the whole body as a String, then a tree), kept as the baseline.</p>
+ */
+@State(Scope.Thread)
+public class ResponseParseBenchmark {
+    @Param({"3", "50", "500"})
+    public int commands;
+
+    @Param({"false", "true"})
+    public boolean verboseEnvelope;
+
+    private byte[] body;
+    private String reply;
+
+    @Setup
+    public void setup() {
+        reply = GameFixtures.reply(commands);
+        body = GameFixtures.response(reply, verboseEnvelope).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Completion parse() throws IOException {
+        return OpenAICompatibleClient.parseResponse(new ByteArrayInputStream(body));
+    }
+
+    @Benchmark
+    public Completion parseTree() {
+        JsonObject response = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonObject message = response.getAsJsonArray("choices").get(0).getAsJsonObject().getAsJsonObject("message");
+        return new Completion(message.get("content").getAsString().trim(), TokenUsage.parse(response.get("usage")));
+    }
+
+    @Benchmark
+    public List<String> split() {
+        return CommandLines.split(reply);
+    }
+
+    @Benchmark
+    public List<String> parseAndSplit() throws IOException {
+        return CommandLines.split(OpenAICompatibleClient.parseResponse(new ByteArrayInputStream(body)).text());
+    }
+}
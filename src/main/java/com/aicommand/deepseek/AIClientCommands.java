@@ -0,0 +1,55 @@
+package com.aicommand.deepseek;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.RegisterClientCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+
+/**
+ * 客户端指令 - /aicommand stats 显示请求指标，reset 清空，overlay 切换界面叠加层
+ * Client Commands - /aicommand stats shows the request metrics, reset clears them and overlay toggles the screen overlay
+ */
+@Mod.EventBusSubscriber(modid = AICommand.MODID, value = Dist.CLIENT)
+public class AIClientCommands {
+
+    @SubscribeEvent
+    public static void onRegisterClientCommands(RegisterClientCommandsEvent event) {
+        event.getDispatcher().register(Commands.literal("aicommand")
+                .then(Commands.literal("stats")
+                        .executes(AIClientCommands::showStats)
+                        .then(Commands.literal("reset").executes(context -> {
+                            MetricsRegistry.reset();
+                            context.getSource().sendSuccess(() -> Component.translatable("commands.aicommand.stats.reset"), false);
+                            return 1;
+                        }))
+                        .then(Commands.literal("overlay").executes(context -> {
+                            Config.saveMetricsOverlay(!Config.metricsOverlay);
+                            context.getSource().sendSuccess(() -> Component.translatable(Config.metricsOverlay
+                                    ? "commands.aicommand.stats.overlay_on" : "commands.aicommand.stats.overlay_off"), false);
+                            return 1;
+                        }))));
+    }
+
+    private static int showStats(CommandContext<CommandSourceStack> context) {
+        CommandSourceStack source = context.getSource();
+        source.sendSuccess(() -> Component.translatable("gui.aicommand.metrics_title"), false);
+        List<String> lines = MetricsRegistry.describe();
+        if (lines.isEmpty()) {
+            source.sendSuccess(() -> Component.translatable("gui.aicommand.metrics_empty"), false);
+        }
+        for (String line : lines) {
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        if (Config.metricsExport != Config.MetricsExport.NONE) {
+            String file = MetricsRegistry.exportFile(Config.metricsExport).toString();
+            source.sendSuccess(() -> Component.translatable("commands.aicommand.stats.exporting", file), false);
+        }
+        return lines.size();
+    }
+}
@@ -65,8 +65,8 @@ public class AICommand {
     // You can use SubscribeEvent and let the Event Bus discover methods to call
     @SubscribeEvent
     public void onServerStarting(ServerStartingEvent event) {
-        // Do something when the server starts
-        LOGGER.info("HELLO from server starting");
+        // 专用服务器没有客户端初始化，在这里创建 /ai 使用的共享客户端 / Dedicated servers have no client setup, so create the shared clients for /ai here
+        ProviderRegistry.init();
     }
 
     // You can use EventBusSubscriber to automatically register all static methods in the class annotated with @SubscribeEvent
@@ -77,6 +77,9 @@ public class AICommand {
             // Some client setup code
             LOGGER.info("HELLO FROM CLIENT SETUP");
             LOGGER.info("MINECRAFT NAME >> {}", Minecraft.getInstance().getUser().getName());
+            
+            // 创建共享的HTTP客户端，打开界面时无需再建立 / Create the shared HTTP clients so opening the screen costs no setup
+            ProviderRegistry.init();
         }
     }
 }
@@ -12,6 +12,10 @@ import org.slf4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class AICommandScreen extends Screen {
     private static final Logger LOGGER = LogUtils.getLogger();
@@ -24,22 +28,29 @@ public class AICommandScreen extends Screen {
     private Button generateButton;
     private Button executeButton;
     private Button configButton;
+    private Button clearButton;
+    private Button cancelButton;
     private CycleButton<Config.AIProvider> providerButton;
     private List<String> generatedCommands;
     private List<String> outputLines;
     private boolean showConfig = false;
-    private DeepSeekClient deepSeekClient;
-    private OpenAIClient openAIClient;
     private Config.AIProvider currentProvider;
     private String savedInputText = ""; // 保存用户输入的文本 / Save user input text
     private boolean hasGeneratedCommands = false; // 是否已生成命令 / Whether commands have been generated
+    private long requestStartNanos; // 本次请求开始时间 / Start time of the current request
+    private long firstCommandNanos; // 首条命令到达时间 / Arrival time of the first command
+    private int receivedCommands; // 本次收到的命令数，包括无效的 / Commands received this time, including invalid ones
+    private int invalidCommands; // 本地校验失败的命令数 / Commands that failed local validation
+    private long validationNanos; // 本地校验总耗时 / Total time spent on local validation
+    private boolean executionRunning; // 上一tick执行队列是否在运行 / Whether the execution queue was running on the previous tick
+    private PipelineEvents.ExecuteBatch executeEvent; // 队列执行中的批次事件 / Batch event of the queued run in progress
+    private CompletableFuture<GenerationResult> pendingGeneration; // 正在进行的生成请求 / The generation request in progress
+    private int generationId; // 每次生成或取消时递增，丢弃过期的回调 / Bumped on every generation or cancel, so stale callbacks are dropped
     
     public AICommandScreen() {
         super(Component.translatable("screen.aicommand.title"));
         this.generatedCommands = new ArrayList<>();
         this.outputLines = new ArrayList<>();
-        this.deepSeekClient = new DeepSeekClient();
-        this.openAIClient = new OpenAIClient();
         this.currentProvider = Config.aiProvider;
     }
     
@@ -85,34 +96,16 @@ public class AICommandScreen extends Screen {
         
         if (showConfig) {
             // AI服务提供商选择器 / AI service provider selector
-            this.providerButton = CycleButton.<Config.AIProvider>builder(provider -> {
-                switch (provider) {
-                    case DEEPSEEK:
-                        return Component.literal("DeepSeek");
-                    case OPENAI:
-                        return Component.literal("OpenAI");
-                    default:
-                        return Component.literal("Unknown");
-                }
-            })
-            .withValues(Config.AIProvider.DEEPSEEK, Config.AIProvider.OPENAI)
+            this.providerButton = CycleButton.<Config.AIProvider>builder(provider -> Component.literal(provider.getDisplayName()))
+            .withValues(Config.AIProvider.values())
             .withInitialValue(this.currentProvider)
             .create(PADDING, startY, 210, BUTTON_HEIGHT, Component.translatable("gui.aicommand.ai_provider"), (button, provider) -> {
                 this.currentProvider = provider;
                 // 保存AI服务提供商选择到配置文件 / Save AI service provider selection to config file
-                Config.aiProvider = provider;
-                try {
-                    java.lang.reflect.Field field = Config.class.getDeclaredField("AI_PROVIDER");
-                    field.setAccessible(true);
-                    net.minecraftforge.common.ForgeConfigSpec.EnumValue<Config.AIProvider> configValue = 
-                        (net.minecraftforge.common.ForgeConfigSpec.EnumValue<Config.AIProvider>) field.get(null);
-                    configValue.set(provider);
-                } catch (Exception e) {
-                    LOGGER.error("Failed to save AI provider to config", e);
-                }
+                Config.saveAiProvider(provider);
                 // 更新API密钥输入框的值 / Update API key input box value
                 if (this.apiKeyBox != null) {
-                    String currentKey = provider == Config.AIProvider.DEEPSEEK ? Config.deepSeekApiKey : Config.openAIApiKey;
+                    String currentKey = Config.apiKey(provider);
                     this.apiKeyBox.setValue(currentKey != null ? currentKey : "");
                 }
             });
@@ -126,7 +119,7 @@ public class AICommandScreen extends Screen {
                 button -> {}
             ).bounds(PADDING, startY, 80, BUTTON_HEIGHT).build());
             
-            String currentKey = this.currentProvider == Config.AIProvider.DEEPSEEK ? Config.deepSeekApiKey : Config.openAIApiKey;
+            String currentKey = Config.apiKey(this.currentProvider);
             this.apiKeyBox = new EditBox(this.font, PADDING + 90, startY, this.width - PADDING * 2 - 90, EDITBOX_HEIGHT, Component.translatable("gui.aicommand.api_key"));
             this.apiKeyBox.setValue(currentKey != null ? currentKey : "");
             this.apiKeyBox.setMaxLength(200);
@@ -139,35 +132,12 @@ public class AICommandScreen extends Screen {
                 Component.translatable("gui.aicommand.save_api_key"),
                 button -> {
                     String newApiKey = this.apiKeyBox.getValue();
-                    if (this.currentProvider == Config.AIProvider.DEEPSEEK) {
-                        this.deepSeekClient.setApiKey(newApiKey);
-                        // 保存到配置文件 / Save to config file / Save to config file
-                        Config.deepSeekApiKey = newApiKey;
-                        // 更新配置规格值 / Update config spec value / Update config spec value
-                        try {
-                            java.lang.reflect.Field field = Config.class.getDeclaredField("DEEPSEEK_API_KEY");
-                            field.setAccessible(true);
-                            net.minecraftforge.common.ForgeConfigSpec.ConfigValue<String> configValue = 
-                                (net.minecraftforge.common.ForgeConfigSpec.ConfigValue<String>) field.get(null);
-                            configValue.set(newApiKey);
-                        } catch (Exception e) {
-                            LOGGER.error("Failed to save DeepSeek API key to config", e);
-                        }
-                    } else {
-                        this.openAIClient.setApiKey(newApiKey);
-                        // 保存到配置文件 / Save to config file / Save to config file
-                        Config.openAIApiKey = newApiKey;
-                        // 更新配置规格值 / Update config spec value / Update config spec value
-                        try {
-                            java.lang.reflect.Field field = Config.class.getDeclaredField("OPENAI_API_KEY");
-                            field.setAccessible(true);
-                            net.minecraftforge.common.ForgeConfigSpec.ConfigValue<String> configValue = 
-                                (net.minecraftforge.common.ForgeConfigSpec.ConfigValue<String>) field.get(null);
-                            configValue.set(newApiKey);
-                        } catch (Exception e) {
-                            LOGGER.error("Failed to save OpenAI API key to config", e);
-                        }
+                    CommandProvider provider = ProviderRegistry.get(this.currentProvider);
+                    if (provider != null) {
+                        provider.setApiKey(newApiKey);
                     }
+                    // 保存到配置文件 / Save to config file
+                    Config.saveApiKey(this.currentProvider, newApiKey);
                     this.outputLines.add(Component.translatable("gui.aicommand.api_key_updated").getString());
                 }
             ).bounds(PADDING, startY, 100, BUTTON_HEIGHT).build();
@@ -197,6 +167,12 @@ public class AICommandScreen extends Screen {
         } else {
             this.inputBox.setValue(savedInputText);
         }
+        // 生成中修改输入时放弃当前请求 / Editing the input while generating abandons the current request
+        this.inputBox.setResponder(text -> {
+            if (this.pendingGeneration != null && !text.trim().equals(this.savedInputText)) {
+                cancelGeneration();
+            }
+        });
         this.addRenderableWidget(this.inputBox);
         
         startY += 30;
@@ -208,17 +184,25 @@ public class AICommandScreen extends Screen {
         ).bounds(PADDING, startY, 120, BUTTON_HEIGHT).build();
         this.addRenderableWidget(this.generateButton);
         
-        // 执行命令按钮 / Execute command button
+        // 执行命令按钮，执行中用作暂停/继续 / Execute command button, used as pause/resume while executing
         this.executeButton = Button.builder(
             Component.translatable("gui.aicommand.execute_commands"),
-            button -> executeCommands()
+            button -> {
+                if (!CommandExecutionQueue.isActive()) {
+                    executeCommands();
+                } else if (CommandExecutionQueue.isPaused()) {
+                    CommandExecutionQueue.resume();
+                } else {
+                    CommandExecutionQueue.pause();
+                }
+            }
         ).bounds(PADDING + 130, startY, 120, BUTTON_HEIGHT).build();
         // 根据是否有生成的命令来设置按钮状态 / Set button state based on whether commands have been generated
         this.executeButton.active = hasGeneratedCommands && !this.generatedCommands.isEmpty();
         this.addRenderableWidget(this.executeButton);
         
         // 清除按钮 / Clear button
-        Button clearButton = Button.builder(
+        this.clearButton = Button.builder(
             Component.translatable("gui.aicommand.clear"),
             button -> {
                 this.generatedCommands.clear();
@@ -232,7 +216,22 @@ public class AICommandScreen extends Screen {
                 }
             }
         ).bounds(PADDING + 260, startY, 60, BUTTON_HEIGHT).build();
-        this.addRenderableWidget(clearButton);
+        this.addRenderableWidget(this.clearButton);
+        
+        // 取消按钮，生成或执行中替换清除按钮 / Cancel button, replaces the clear button while generating or executing
+        this.cancelButton = Button.builder(
+            Component.translatable("gui.aicommand.cancel"),
+            button -> {
+                if (this.pendingGeneration != null) {
+                    cancelGeneration();
+                } else {
+                    CommandExecutionQueue.cancel();
+                }
+            }
+        ).bounds(PADDING + 260, startY, 60, BUTTON_HEIGHT).build();
+        this.addRenderableWidget(this.cancelButton);
+        this.executionRunning = CommandExecutionQueue.isActive();
+        updateExecutionButtons();
         
         // 关闭按钮 / Close button
         Button closeButton = Button.builder(
@@ -264,13 +263,17 @@ public class AICommandScreen extends Screen {
             }
         }
         
+        CommandProvider provider = ProviderRegistry.get(this.currentProvider);
+        if (provider == null) {
+            this.outputLines.add("❌ " + Component.translatable("gui.aicommand.error", "config not loaded").getString());
+            return;
+        }
+        
         // 检查API key是否配置 / Check if API key is configured
-        String currentApiKey = this.currentProvider == Config.AIProvider.DEEPSEEK 
-            ? Config.deepSeekApiKey 
-            : Config.openAIApiKey;
+        String currentApiKey = Config.apiKey(this.currentProvider);
             
-        if (currentApiKey == null || currentApiKey.trim().isEmpty()) {
-            String providerName = this.currentProvider == Config.AIProvider.DEEPSEEK ? "DeepSeek" : "OpenAI";
+        if (provider.settings().requiresApiKey() && (currentApiKey == null || currentApiKey.trim().isEmpty())) {
+            String providerName = provider.displayName();
             this.outputLines.add("❌ " + Component.translatable("gui.aicommand.api_key_required", providerName).getString());
             this.outputLines.add(Component.translatable("gui.aicommand.please_configure_api_key").getString());
             return;
@@ -283,43 +286,90 @@ public class AICommandScreen extends Screen {
         this.outputLines.add(Component.translatable("gui.aicommand.generating_for", userInput).getString());
         this.outputLines.add(Component.translatable("gui.aicommand.please_wait").getString());
         
+        // 在主线程上采集游戏快照，后台线程只读取快照 / Capture the game snapshot on the main thread; worker threads only read it
+        GameSnapshot snapshot = GameSnapshot.capture();
+        LOGGER.debug("Captured game snapshot in {} µs", TimeUnit.NANOSECONDS.toMicros(snapshot.captureNanos()));
+        
+        // 重置本次生成的状态和计时 / Reset per-generation state and timing
+        this.generatedCommands.clear();
+        this.hasGeneratedCommands = false;
+        this.executeButton.active = false;
+        this.requestStartNanos = System.nanoTime();
+        this.firstCommandNanos = 0;
+        this.receivedCommands = 0;
+        this.invalidCommands = 0;
+        this.validationNanos = 0;
+        
+        // 流式模式下每收到一行就切回主线程显示 / In streaming mode, hop back to the main thread for each received line
+        int id = ++this.generationId;
+        Consumer<String> onLine = line -> Minecraft.getInstance().execute(() -> {
+            if (id == this.generationId) {
+                addGeneratedCommand(line);
+            }
+        });
+        
         // 根据选择的AI服务提供商异步调用API / Asynchronously call API based on selected AI service provider
-        var clientFuture = this.currentProvider == Config.AIProvider.DEEPSEEK 
-            ? this.deepSeekClient.generateCommand(userInput)
-            : this.openAIClient.generateCommand(userInput);
+        var clientFuture = CommandGenerator.generate(this.currentProvider, snapshot, userInput, onLine);
+        this.pendingGeneration = clientFuture;
             
-        clientFuture.thenAccept(result -> {
+        clientFuture.thenAccept(generation -> {
             Minecraft.getInstance().execute(() -> {
+                if (id != this.generationId) {
+                    return; // 已被取消 / Already cancelled
+                }
+                this.pendingGeneration = null;
                 this.generateButton.active = true;
+                String result = generation.text();
                 
-                if (result.startsWith("Error:")) {
+                if (generation.isError()) {
+                    // 不允许执行流式中断时的部分结果 / Do not allow executing a partial streamed result
+                    this.generatedCommands.clear();
                     this.outputLines.add("❌ " + result);
                 } else {
-                    this.outputLines.add(Component.translatable("gui.aicommand.generated_commands").getString());
-                    
-                    // 分割多个命令 / Split multiple commands
-                    String[] commands = result.split("\n");
-                    this.generatedCommands.clear();
-                    
-                    for (String command : commands) {
-                        command = command.trim();
-                        if (!command.isEmpty()) {
-                            // 确保命令以/开头 / Ensure command starts with /
-                            if (!command.startsWith("/")) {
-                                command = "/" + command;
-                            }
-                            this.generatedCommands.add(command);
-                            this.outputLines.add("  " + command);
+                    // 非流式响应在这里一次性分割 / Non-streamed responses are split here in one go
+                    if (this.receivedCommands == 0) {
+                        for (String command : CommandLines.split(result)) {
+                            addGeneratedCommand(command);
                         }
                     }
                     
-                    // 更新命令生成状态 / Update command generation status
-                    this.hasGeneratedCommands = !this.generatedCommands.isEmpty();
-                    this.executeButton.active = this.hasGeneratedCommands;
+                    if (Config.validateCommands) {
+                        this.outputLines.add(Component.translatable("gui.aicommand.validation",
+                            this.generatedCommands.size(), this.invalidCommands, TimeUnit.NANOSECONDS.toMicros(this.validationNanos)).getString());
+                    }
+                    
+                    long totalNanos = System.nanoTime() - this.requestStartNanos;
+                    if (generation.cached()) {
+                        ResponseCache cache = CommandGenerator.cache();
+                        this.outputLines.add(Component.translatable("gui.aicommand.cache_hit",
+                            TimeUnit.NANOSECONDS.toMicros(totalNanos), cache.hits(), cache.misses()).getString());
+                    }
+                    long firstNanos = this.firstCommandNanos > 0 ? this.firstCommandNanos - this.requestStartNanos : totalNanos;
+                    this.outputLines.add(Component.translatable("gui.aicommand.latency",
+                        TimeUnit.NANOSECONDS.toMillis(firstNanos), TimeUnit.NANOSECONDS.toMillis(totalNanos)).getString());
+                    LOGGER.info("Generated {} command(s): first command after {} ms, total {} ms",
+                        this.generatedCommands.size(), TimeUnit.NANOSECONDS.toMillis(firstNanos), TimeUnit.NANOSECONDS.toMillis(totalNanos));
+                    TokenUsage usage = generation.usage();
+                    if (usage.isKnown()) {
+                        PromptCacheStats stats = CommandGenerator.promptCacheStats(generation.provider());
+                        this.outputLines.add(Component.translatable("gui.aicommand.prompt_cache",
+                            usage.cachedPromptTokens(), usage.promptTokens(), stats.hitRatePercent(), stats.latencySavedMillis()).getString());
+                    }
                 }
+                
+                // 更新命令生成状态 / Update command generation status
+                this.hasGeneratedCommands = !this.generatedCommands.isEmpty();
+                this.executeButton.active = this.hasGeneratedCommands;
             });
         }).exceptionally(throwable -> {
+            if (throwable instanceof CancellationException || throwable.getCause() instanceof CancellationException) {
+                return null; // 取消时已经提示过 / Already reported when cancelled
+            }
             Minecraft.getInstance().execute(() -> {
+                if (id != this.generationId) {
+                    return;
+                }
+                this.pendingGeneration = null;
                 this.generateButton.active = true;
                 this.outputLines.add("❌ " + Component.translatable("gui.aicommand.error", throwable.getMessage()).getString());
                 LOGGER.error("Error generating command", throwable);
@@ -328,6 +378,66 @@ public class AICommandScreen extends Screen {
         });
     }
     
+    /**
+     * 放弃正在进行的生成，中止HTTP请求并丢弃之后到达的结果 / Abandon the generation in progress, aborting the HTTP request and dropping anything that still arrives
+     */
+    private void cancelGeneration() {
+        if (this.pendingGeneration == null) {
+            return;
+        }
+        this.pendingGeneration.cancel(true);
+        this.pendingGeneration = null;
+        this.generationId++;
+        this.generatedCommands.clear();
+        this.hasGeneratedCommands = false;
+        this.generateButton.active = true;
+        this.outputLines.add("❌ " + Component.translatable("gui.aicommand.generation_cancelled").getString());
+        LOGGER.info("Generation cancelled");
+    }
+    
+    @Override
+    public void removed() {
+        // 关闭界面时不再需要结果 / The result is no longer needed once the screen closes
+        cancelGeneration();
+        super.removed();
+    }
+    
+    /**
+     * 添加一条生成的命令并显示 / Add one generated command and display it
+     */
+    private void addGeneratedCommand(String command) {
+        // 去掉空白并确保命令以/开头 / Trim and ensure command starts with /
+        command = CommandLines.normalize(command);
+        if (command == null) {
+            return;
+        }
+        if (this.receivedCommands++ == 0) {
+            this.firstCommandNanos = System.nanoTime();
+            this.outputLines.add(Component.translatable("gui.aicommand.generated_commands").getString());
+        }
+        
+        // 本地解析，无效的命令不会被执行 / Parse locally; invalid commands are never executed
+        PipelineEvents.CommandValidation event = new PipelineEvents.CommandValidation();
+        event.begin();
+        long start = System.nanoTime();
+        CommandValidator.Validation validation = CommandValidator.validate(command);
+        this.validationNanos += System.nanoTime() - start;
+        if (event.shouldCommit()) {
+            event.command = command;
+            event.valid = validation.isValid();
+            event.error = validation.error();
+            event.commit();
+        }
+        if (!validation.isValid()) {
+            this.invalidCommands++;
+            this.outputLines.add("❌ " + Component.translatable("gui.aicommand.invalid_command", command, validation.error()).getString());
+            LOGGER.info("Rejected invalid command {}: {}", command, validation.error());
+            return;
+        }
+        this.generatedCommands.add(command);
+        this.outputLines.add("  " + command);
+    }
+    
     private void executeCommands() {
         if (this.generatedCommands.isEmpty()) {
             this.outputLines.add(Component.translatable("gui.aicommand.no_commands").getString());
@@ -340,21 +450,128 @@ public class AICommandScreen extends Screen {
             return;
         }
         
-        this.outputLines.add(Component.translatable("gui.aicommand.executing_commands", this.generatedCommands.size()).getString());
+        // 从优化开始计时，到整批执行完为止 / Timed from optimization until the whole batch has run
+        PipelineEvents.ExecuteBatch event = new PipelineEvents.ExecuteBatch();
+        event.begin();
+        event.originalCommands = this.generatedCommands.size();
         
-        for (String command : this.generatedCommands) {
-            try {
-                // 执行命令 / Execute command
-                minecraft.player.connection.sendUnsignedCommand(command.startsWith("/") ? command.substring(1) : command);
-                this.outputLines.add("✅ " + Component.translatable("gui.aicommand.executed", command).getString());
-                LOGGER.info("Executed command: {}", command);
-            } catch (Exception e) {
-                this.outputLines.add("❌ " + Component.translatable("gui.aicommand.failed_execute", command).getString());
-                LOGGER.error("Failed to execute command: {}", command, e);
+        // 把成片的setblock合并成fill / Merge runs of setblocks into fills
+        List<String> commands = this.generatedCommands;
+        if (Config.optimizeCommands) {
+            CommandOptimizer.Result optimized = CommandOptimizer.optimize(commands);
+            if (optimized.removed() > 0) {
+                this.outputLines.add(Component.translatable("gui.aicommand.optimized",
+                    optimized.originalCount(), optimized.commands().size()).getString());
+                LOGGER.info("Optimized {} commands into {}", optimized.originalCount(), optimized.commands().size());
             }
+            commands = optimized.commands();
         }
         
-        this.executeButton.active = false;
+        this.outputLines.add(Component.translatable("gui.aicommand.executing_commands", commands.size()).getString());
+        event.commands = commands.size();
+        this.hasGeneratedCommands = false; // 同一批命令只执行一次 / Run the same batch only once
+        
+        // 单人游戏中的大批指令作为一个函数在服务器线程上执行 / In singleplayer, large batches run as one function on the server thread
+        if (Config.functionThreshold > 0 && commands.size() >= Config.functionThreshold && IntegratedServerDispatcher.isAvailable()) {
+            List<String> batch = List.copyOf(commands);
+            this.executeButton.active = false;
+            DatapackFunctionRunner.run(batch, minecraft.player.getUUID()).thenAccept(outcome -> minecraft.execute(() -> {
+                if (outcome.error() == null) {
+                    this.outputLines.add((outcome.failed() == 0 ? "✅ " : "❌ ") + Component.translatable("gui.aicommand.function_executed",
+                        outcome.commands(), DatapackFunctionRunner.FUNCTION_ID.toString(), outcome.failed()).getString());
+                    commitExecuteEvent(event, "function", outcome.commands(), outcome.failed(), outcome.failed() == 0 ? "ok" : "partial");
+                } else {
+                    // 函数被拒绝时退回逐条发送 / Fall back to sending one by one when the function is rejected
+                    this.outputLines.add("❌ " + Component.translatable("gui.aicommand.function_failed", outcome.error()).getString());
+                    queueCommands(batch, event);
+                }
+            }));
+            return;
+        }
+        
+        // 单人游戏中直接在服务器线程上执行，拿到每条指令的结果 / In singleplayer, run directly on the server thread and get every command's result
+        if (Config.directDispatch && IntegratedServerDispatcher.isAvailable()) {
+            this.executeButton.active = false;
+            IntegratedServerDispatcher.dispatch(commands, minecraft.player.getUUID()).thenAccept(outcome -> minecraft.execute(() -> {
+                if (outcome.error() != null) {
+                    this.outputLines.add("❌ " + Component.translatable("gui.aicommand.error", outcome.error()).getString());
+                    commitExecuteEvent(event, "direct", 0, 0, "error");
+                    return;
+                }
+                commitExecuteEvent(event, "direct", outcome.succeeded(), outcome.failed().size(), outcome.failed().isEmpty() ? "ok" : "partial");
+                String summary = Component.translatable("gui.aicommand.dispatch_result", outcome.succeeded(), outcome.failed().size(),
+                    TimeUnit.NANOSECONDS.toMicros(outcome.durationNanos())).getString();
+                this.outputLines.add((outcome.failed().isEmpty() ? "✅ " : "❌ ") + summary);
+                for (String command : outcome.failed()) {
+                    this.outputLines.add("❌ " + Component.translatable("gui.aicommand.failed_execute", command).getString());
+                }
+            }));
+            return;
+        }
+        queueCommands(commands, event);
+    }
+    
+    /**
+     * 交给执行队列分散到多个tick发送 / Hand over to the execution queue, which spreads the commands over several ticks
+     */
+    private void queueCommands(List<String> commands, PipelineEvents.ExecuteBatch event) {
+        // 追加到正在执行的队列时，由最先的那批事件覆盖 / When appended to a running queue, the first batch's event covers it
+        if (!CommandExecutionQueue.isActive()) {
+            this.executeEvent = event;
+        }
+        CommandExecutionQueue.submit(commands);
+        this.executionRunning = true;
+        updateExecutionButtons();
+    }
+    
+    @Override
+    public void tick() {
+        super.tick();
+        boolean running = CommandExecutionQueue.isActive();
+        if (this.executionRunning && !running) {
+            // 执行结束或被取消 / Execution finished or was cancelled
+            String key = CommandExecutionQueue.wasCancelled() ? "gui.aicommand.execution_cancelled" : "gui.aicommand.execution_finished";
+            String line = Component.translatable(key, CommandExecutionQueue.sent(), CommandExecutionQueue.total(), CommandExecutionQueue.errors()).getString();
+            this.outputLines.add((CommandExecutionQueue.errors() > 0 || CommandExecutionQueue.wasCancelled() ? "❌ " : "✅ ") + line);
+            if (this.executeEvent != null) {
+                String outcome = CommandExecutionQueue.wasCancelled() ? "cancelled" : CommandExecutionQueue.errors() > 0 ? "partial" : "ok";
+                commitExecuteEvent(this.executeEvent, "queue", CommandExecutionQueue.sent() - CommandExecutionQueue.errors(),
+                    CommandExecutionQueue.errors(), outcome);
+                this.executeEvent = null;
+            }
+        }
+        this.executionRunning = running;
+        updateExecutionButtons();
+    }
+    
+    /**
+     * 批次执行完后提交JFR事件 / Commit the JFR event once a batch has finished
+     */
+    private static void commitExecuteEvent(PipelineEvents.ExecuteBatch event, String mode, int succeeded, int failed, String outcome) {
+        if (event.shouldCommit()) {
+            event.mode = mode;
+            event.succeeded = succeeded;
+            event.failed = failed;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 执行中把执行按钮变为暂停/继续，生成或执行中用取消按钮替换清除按钮 / While executing, turn the execute button into pause/resume; while generating or executing, swap the clear button for cancel
+     */
+    private void updateExecutionButtons() {
+        boolean running = CommandExecutionQueue.isActive();
+        if (running) {
+            this.executeButton.setMessage(Component.translatable(CommandExecutionQueue.isPaused() ? "gui.aicommand.resume" : "gui.aicommand.pause"));
+            this.executeButton.active = true;
+        } else {
+            this.executeButton.setMessage(Component.translatable("gui.aicommand.execute_commands"));
+            this.executeButton.active = this.hasGeneratedCommands && !this.generatedCommands.isEmpty();
+        }
+        boolean cancellable = running || this.pendingGeneration != null;
+        this.clearButton.visible = !cancellable;
+        this.cancelButton.visible = cancellable;
     }
     
     @Override
@@ -372,6 +589,23 @@ public class AICommandScreen extends Screen {
         // 输出区域背景 / Output area background (使用整数坐标 / Use integer coordinates)
         guiGraphics.fill(PADDING, outputStartY, this.width - PADDING, this.height - 20, 0x88000000);
         
+        // 执行进度条 / Execution progress bar
+        if (CommandExecutionQueue.isActive()) {
+            int barTop = this.height - 16;
+            int barWidth = this.width - PADDING * 2;
+            int done = barWidth * CommandExecutionQueue.sent() / Math.max(1, CommandExecutionQueue.total());
+            guiGraphics.fill(PADDING, barTop, PADDING + barWidth, barTop + 10, 0x88000000);
+            guiGraphics.fill(PADDING, barTop, PADDING + done, barTop + 10, CommandExecutionQueue.isPaused() ? 0xFFAAAA55 : 0xFF55AA55);
+            String progress = Component.translatable("gui.aicommand.execution_progress", CommandExecutionQueue.sent(),
+                CommandExecutionQueue.total(), String.format("%.2f", CommandExecutionQueue.rate())).getString();
+            guiGraphics.drawCenteredString(this.font, progress, this.width / 2, barTop + 1, 0xFFFFFF);
+        }
+        
+        // 指标叠加层 / Metrics overlay
+        if (Config.metricsOverlay) {
+            renderMetricsOverlay(guiGraphics, outputStartY);
+        }
+        
         // 渲染输出文本 / Render output text
         int lineHeight = this.font.lineHeight + 2;
         int maxLines = outputHeight / lineHeight;
@@ -398,6 +632,30 @@ public class AICommandScreen extends Screen {
         super.render(guiGraphics, mouseX, mouseY, partialTick);
     }
     
+    /**
+     * 在输出区域右上角显示各服务商的 p50/p95/p99 / Show the p50/p95/p99 of each provider in the top right corner of the output area
+     */
+    private void renderMetricsOverlay(GuiGraphics guiGraphics, int top) {
+        List<String> lines = new ArrayList<>();
+        lines.add(Component.translatable("gui.aicommand.metrics_title").getString());
+        List<String> metrics = MetricsRegistry.describe();
+        if (metrics.isEmpty()) {
+            lines.add(Component.translatable("gui.aicommand.metrics_empty").getString());
+        } else {
+            lines.addAll(metrics);
+        }
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, this.font.width(line));
+        }
+        int lineHeight = this.font.lineHeight + 1;
+        int left = this.width - PADDING - width - 8;
+        guiGraphics.fill(left, top, this.width - PADDING, top + lines.size() * lineHeight + 6, 0xCC000000);
+        for (int i = 0; i < lines.size(); i++) {
+            guiGraphics.drawString(this.font, lines.get(i), left + 4, top + 4 + i * lineHeight, i == 0 ? 0xFFFF55 : 0xAAAAAA);
+        }
+    }
+    
     @Override
     public boolean isPauseScreen() {
         return false;
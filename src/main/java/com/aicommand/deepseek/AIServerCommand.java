@@ -0,0 +1,50 @@
+package com.aicommand.deepseek;
+
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * 服务器 /ai 指令 - 玩家在聊天框中描述需求，由服务器生成并执行指令
+ * Server /ai Command - Players describe what they want in chat, and the server generates and runs the commands
+ */
+@Mod.EventBusSubscriber(modid = AICommand.MODID)
+public class AIServerCommand {
+
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        event.getDispatcher().register(Commands.literal("ai")
+                .requires(source -> source.hasPermission(Config.serverPermissionLevel))
+                .then(Commands.argument("request", StringArgumentType.greedyString())
+                        .executes(context -> generate(context.getSource(), StringArgumentType.getString(context, "request")))));
+    }
+
+    private static int generate(CommandSourceStack source, String request) throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        ServerGenerationQueue.Admission admission = ServerGenerationQueue.submit(source.getServer(), player, request);
+        if (!admission.accepted()) {
+            source.sendFailure(Component.translatable(admission.messageKey(), admission.value()));
+            return 0;
+        }
+        source.sendSuccess(() -> Component.translatable(admission.messageKey(), admission.value()), false);
+        return 1;
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        ServerGenerationQueue.drop(event.getEntity().getUUID());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopping(ServerStoppingEvent event) {
+        ServerGenerationQueue.clear();
+    }
+}
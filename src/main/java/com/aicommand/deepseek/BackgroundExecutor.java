@@ -0,0 +1,48 @@
+package com.aicommand.deepseek;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台执行器 - 模组自己的虚拟线程执行器，用于API请求和文件读写，不占用其他模组共用的 ForkJoinPool.commonPool
+ * Background Executor - The mod's own virtual thread executor for API requests and file I/O, keeping them off the ForkJoinPool.commonPool other mods share
+ *
+ * <p>虚拟线程在阻塞等待网络时不占用平台线程，因此同时进行的请求再多也不会堆积系统线程。
+ * A virtual thread blocked on the network holds no platform thread, so any number of requests in flight never piles up OS threads.</p>
+ */
+public class BackgroundExecutor {
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("aicommand-worker-", 0).factory());
+
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * 在虚拟线程上运行任务，返回的 future 被取消或超过截止时间时中断该线程 / Run a task on a virtual thread; the thread is interrupted when the returned future is cancelled or passes its deadline
+     *
+     * <p>HttpClient 的阻塞调用在线程被中断时会中止请求并关闭连接上的这次交换。
+     * HttpClient's blocking calls abort the request and its exchange when the thread is interrupted.</p>
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task, Duration deadline) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> worker = EXECUTOR.submit(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                worker.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,28 @@
+package com.aicommand.deepseek;
+
+/**
+ * 熔断器 - 连续失败后在一段时间内跳过该服务商
+ * Circuit Breaker - Skips a provider for a while after consecutive failures
+ */
+public class CircuitBreaker {
+    private int consecutiveFailures = 0;
+    private long openUntilNanos = 0;
+
+    /**
+     * 熔断器是否处于打开状态，到期后允许试探请求 / Whether the breaker is open; once it expires, probe requests are allowed
+     */
+    public synchronized boolean isOpen() {
+        return consecutiveFailures >= Config.breakerFailureThreshold && System.nanoTime() < openUntilNanos;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (consecutiveFailures >= Config.breakerFailureThreshold) {
+            openUntilNanos = System.nanoTime() + Config.breakerOpenSeconds * 1_000_000_000L;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import net.minecraft.ChatFormatting;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.TextColor;
+import net.minecraft.util.Mth;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientChatReceivedEvent;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 指令执行队列 - 由客户端tick驱动，每tick最多发送N条指令，并根据服务器反馈调整速率
+ * Command Execution Queue - Driven by the client tick, sends at most N commands per tick and adapts the rate to server feedback
+ *
+ * <p>速率按加性增、乘性减调整：服务器返回红色错误时减半，无错误时缓慢增加。所有方法只在客户端主线程调用。
+ * The rate is adjusted additively up and multiplicatively down: halved when the server answers with a red error, raised slowly while there are none. Client thread only.</p>
+ *
+ * <p>非管理员的上限更低，因为原版服务器会踢出平均每秒超过一条指令的非管理员；入队时把方块指令里的~坐标换算成绝对坐标，玩家在慢速执行期间移动也不会让建筑错位。
+ * Non-operators get a lower cap because vanilla kicks non-operators that average more than one command per second; relative ~ coordinates in block commands are resolved to absolute ones when queued, so moving during a slow run does not shift the build.</p>
+ */
+@Mod.EventBusSubscriber(modid = AICommand.MODID, value = Dist.CLIENT)
+public class CommandExecutionQueue {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final double MIN_RATE = 0.05; // 每20tick一条 / One command every 20 ticks
+    private static final double RATE_INCREASE = 0.05;
+    // 两次减速之间至少间隔的tick数，避免一批错误把速率降到底 / Minimum ticks between two slow-downs, so one burst of errors does not floor the rate
+    private static final int DECREASE_INTERVAL_TICKS = 10;
+    // 最后一次发送后多少tick内收到的错误算作反馈 / Errors within this many ticks after the last send count as feedback
+    private static final int FEEDBACK_WINDOW_TICKS = 40;
+    private static final int SPAM_COOLDOWN_TICKS = 40;
+    private static final String[] SPAM_PHRASES = {"too fast", "spam", "slow down", "太快", "刷屏"};
+    private static final int OP_PERMISSION_LEVEL = 2;
+    private static final Pattern TOKEN = Pattern.compile("\\S+");
+    private static final Pattern COORDINATE = Pattern.compile("~((?:-?(?:\\d+(?:\\.\\d*)?|\\.\\d+))?)|-?\\d+");
+
+    private static final Deque<String> pending = new ArrayDeque<>();
+    private static int total;
+    private static int sent;
+    private static int errors;
+    private static boolean paused;
+    private static boolean cancelled;
+    private static double rate;
+    private static double credit;
+    private static long tick;
+    private static long lastSendTick = Long.MIN_VALUE;
+    private static long lastDecreaseTick = Long.MIN_VALUE;
+    private static long cooldownUntilTick;
+
+    /**
+     * 加入要执行的指令，正在执行时追加到队尾 / Queue commands for execution, appended to the end while a run is in progress
+     */
+    public static void submit(Collection<String> commands) {
+        LocalPlayer player = Minecraft.getInstance().player;
+        if (!isActive()) {
+            total = 0;
+            sent = 0;
+            errors = 0;
+            paused = false;
+            cancelled = false;
+            credit = 0;
+            rate = maxRate(player);
+        }
+        for (String command : commands) {
+            pending.add(player == null ? command : resolveRelative(command, player.position()));
+        }
+        total += commands.size();
+    }
+
+    /**
+     * 把setblock/fill/clone的~坐标换算为以origin为基准的绝对坐标；其他指令与带^或非数字参数的指令保持不变
+     * Resolve ~ coordinates of setblock/fill/clone against origin; other commands, and ones with ^ or non-numeric arguments, are left unchanged
+     */
+    static String resolveRelative(String command, Vec3 origin) {
+        Matcher tokens = TOKEN.matcher(command);
+        if (!tokens.find()) {
+            return command;
+        }
+        int coordinates = switch (tokens.group().startsWith("/") ? tokens.group().substring(1) : tokens.group()) {
+            case "setblock" -> 3;
+            case "fill" -> 6;
+            case "clone" -> 9;
+            default -> 0;
+        };
+        StringBuilder resolved = new StringBuilder(command.length());
+        int copied = 0;
+        for (int i = 0; i < coordinates; i++) {
+            if (!tokens.find()) {
+                return command;
+            }
+            Matcher coordinate = COORDINATE.matcher(tokens.group());
+            if (!coordinate.matches()) {
+                return command;
+            }
+            if (coordinate.group(1) == null) {
+                continue;
+            }
+            String offset = coordinate.group(1);
+            double base = switch (i % 3) {
+                case 0 -> origin.x;
+                case 1 -> origin.y;
+                default -> origin.z;
+            };
+            // 与原版相同：先加偏移再向下取整 / Same as vanilla: add the offset, then floor
+            int absolute = Mth.floor(base + (offset.isEmpty() ? 0 : Double.parseDouble(offset)));
+            resolved.append(command, copied, tokens.start()).append(absolute);
+            copied = tokens.end();
+        }
+        return copied == 0 ? command : resolved.append(command, copied, command.length()).toString();
+    }
+
+    /**
+     * 当前玩家允许的最大速率 / Highest rate allowed for the current player
+     */
+    private static double maxRate(LocalPlayer player) {
+        if (player != null && player.hasPermissions(OP_PERMISSION_LEVEL)) {
+            return Config.commandsPerTick;
+        }
+        return Math.min(Config.commandsPerTick, Config.nonOpCommandsPerTick);
+    }
+
+    public static boolean isActive() {
+        return !pending.isEmpty();
+    }
+
+    public static boolean isPaused() {
+        return paused;
+    }
+
+    public static void pause() {
+        paused = true;
+    }
+
+    public static void resume() {
+        paused = false;
+    }
+
+    /**
+     * 丢弃尚未发送的指令 / Drop every command that has not been sent yet
+     */
+    public static void cancel() {
+        if (isActive()) {
+            LOGGER.info("Cancelled command execution after {}/{} commands", sent, total);
+            pending.clear();
+            cancelled = true;
+            paused = false;
+        }
+    }
+
+    public static int total() {
+        return total;
+    }
+
+    public static int sent() {
+        return sent;
+    }
+
+    public static int errors() {
+        return errors;
+    }
+
+    public static boolean wasCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 当前每tick发送的指令数 / Current commands sent per tick
+     */
+    public static double rate() {
+        return rate;
+    }
+
+    @SubscribeEvent
+    public static void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        tick++;
+        if (pending.isEmpty() || paused || tick < cooldownUntilTick) {
+            return;
+        }
+        LocalPlayer player = Minecraft.getInstance().player;
+        if (player == null) {
+            return;
+        }
+
+        double maxRate = maxRate(player);
+        if (Config.adaptiveExecution && tick - lastDecreaseTick > DECREASE_INTERVAL_TICKS) {
+            rate = Math.min(maxRate, rate + RATE_INCREASE);
+        }
+        rate = Math.min(rate, maxRate);
+        // 速率低于1时积攒到一条指令为止 / Below one per tick, credit accumulates up to a single command
+        credit = Math.min(credit + rate, Math.max(1, maxRate));
+        while (credit >= 1 && !pending.isEmpty()) {
+            credit--;
+            send(player, pending.poll());
+        }
+        if (pending.isEmpty()) {
+            LOGGER.info("Executed {} commands, {} reported errors", sent, errors);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onSystemChat(ClientChatReceivedEvent.System event) {
+        if (tick - lastSendTick > FEEDBACK_WINDOW_TICKS || lastSendTick == Long.MIN_VALUE) {
+            return; // 与本队列无关的消息 / Not feedback for this queue
+        }
+        Component message = event.getMessage();
+        String text = message.getString().toLowerCase(Locale.ROOT);
+        for (String phrase : SPAM_PHRASES) {
+            if (text.contains(phrase)) {
+                // 服务器提示发送过快：降到最低速率并暂停一会 / The server says we are too fast: drop to the minimum rate and wait a moment
+                LOGGER.warn("Server asked to slow down, backing off: {}", message.getString());
+                rate = Math.min(MIN_RATE, maxRate(Minecraft.getInstance().player));
+                credit = 0;
+                cooldownUntilTick = tick + SPAM_COOLDOWN_TICKS;
+                lastDecreaseTick = tick;
+                return;
+            }
+        }
+        if (isError(message)) {
+            errors++;
+            if (Config.adaptiveExecution && tick - lastDecreaseTick > DECREASE_INTERVAL_TICKS) {
+                rate = Math.max(Math.min(MIN_RATE, maxRate(Minecraft.getInstance().player)), rate / 2);
+                lastDecreaseTick = tick;
+                LOGGER.debug("Command error, execution rate lowered to {} per tick", rate);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        cancel();
+    }
+
+    private static void send(LocalPlayer player, String command) {
+        String input = command.startsWith("/") ? command.substring(1) : command;
+        try {
+            // 带签名参数的指令（如/msg）需要走签名通道 / Commands with signed arguments (such as /msg) must go through the signed path
+            if (!player.connection.sendUnsignedCommand(input)) {
+                player.connection.sendCommand(input);
+            }
+            sent++;
+            lastSendTick = tick;
+            LOGGER.debug("Executed command: {}", command);
+        } catch (Exception e) {
+            errors++;
+            LOGGER.error("Failed to execute command: {}", command, e);
+        }
+    }
+
+    /**
+     * 指令失败的反馈是红色的系统消息 / Command failure feedback is a red system message
+     */
+    private static boolean isError(Component message) {
+        TextColor red = TextColor.fromLegacyFormat(ChatFormatting.RED);
+        if (red.equals(message.getStyle().getColor())) {
+            return true;
+        }
+        for (Component sibling : message.getSiblings()) {
+            if (red.equals(sibling.getStyle().getColor())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
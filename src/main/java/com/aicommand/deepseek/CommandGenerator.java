@@ -0,0 +1,357 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.slf4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 指令生成器 - 选择服务商发送请求，支持对冲请求和故障转移
+ * Command Generator - Dispatches requests to the providers, with hedged requests and failover
+ */
+public class CommandGenerator {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int LATENCY_WINDOW = 100;
+    // 样本不足时不计算分位数，直接使用最大延迟 / Below this many samples, use the maximum delay instead of a percentile
+    private static final int MIN_LATENCY_SAMPLES = 5;
+
+    private static final Map<Config.AIProvider, LatencyTracker> latencies = new EnumMap<>(Config.AIProvider.class);
+    private static final Map<Config.AIProvider, CircuitBreaker> breakers = new EnumMap<>(Config.AIProvider.class);
+    private static final Map<Config.AIProvider, PromptCacheStats> promptCacheStats = new EnumMap<>(Config.AIProvider.class);
+    private static final ResponseCache cache = new ResponseCache(FMLPaths.GAMEDIR.get().resolve(AICommand.MODID).resolve("response-cache.json"));
+    // 正在进行的请求，相同的请求共用一个结果 / Requests in flight; identical requests share one result
+    private static final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 生成指令，流式模式下每完成一行就回调一次 / Generate commands, calling back once per finished line in streaming mode
+     *
+     * <p>与正在进行的相同请求合并时不会收到逐行回调，只有最终结果。取消返回的 future 只放弃这一个调用者的等待，
+     * 所有调用者都放弃后请求才会被中止。
+     * A request merged into an identical one in flight gets no per-line callbacks, only the final result. Cancelling the returned
+     * future only gives up this caller's wait; the request itself is aborted once every caller has given up.</p>
+     */
+    public static CompletableFuture<GenerationResult> generate(Config.AIProvider primary, GameSnapshot snapshot, String userRequest,
+                                                               Consumer<String> lineConsumer) {
+        ProviderSettings settings = ProviderRegistry.get(primary).settings();
+        String cacheKey = ResponseCache.key(primary.name() + '/' + settings.model(), userRequest,
+            ResponseCache.contextFingerprint(snapshot.player(), snapshot.inventory(), snapshot.world()));
+        String position = ResponseCache.positionFingerprint(snapshot.player());
+        String cached = cache.get(cacheKey, position);
+        if (cached != null) {
+            MetricsRegistry.record(RequestMetrics.cacheHit(settings.displayName(), settings.model(), snapshot.captureNanos()));
+            return CompletableFuture.completedFuture(new GenerationResult(cached, primary, true, TokenUsage.NONE));
+        }
+
+        InFlight leader = inFlight.get(cacheKey);
+        if (leader != null && leader.join()) {
+            LOGGER.debug("Joined an identical request already in flight");
+            return leader.view(cacheKey, result -> {
+                if (result.isError() || leader.position.equals(position) || !ResponseCache.isPositional(result.text())) {
+                    return null;
+                }
+                // 结果使用了另一位置的绝对坐标，单独请求 / The result uses absolute coordinates of another position, so request separately
+                return dispatch(primary, snapshot, userRequest, lineConsumer);
+            });
+        }
+
+        InFlight request = new InFlight(position);
+        if (inFlight.putIfAbsent(cacheKey, request) != null) {
+            return dispatch(primary, snapshot, userRequest, lineConsumer); // 同时到达的相同请求，不再合并 / An identical request arrived at the same moment; not merged
+        }
+        CompletableFuture<GenerationResult> dispatched = dispatch(primary, snapshot, userRequest, lineConsumer);
+        request.attach(dispatched);
+        dispatched.whenComplete((result, throwable) -> {
+            inFlight.remove(cacheKey, request);
+            if (throwable != null) {
+                request.shared.completeExceptionally(throwable);
+                return;
+            }
+            if (!result.isError()) {
+                cache.put(cacheKey, position, result.text());
+            }
+            request.shared.complete(result);
+        });
+        return request.view(cacheKey, result -> null);
+    }
+
+    public static ResponseCache cache() {
+        return cache;
+    }
+
+    private static CompletableFuture<GenerationResult> dispatch(Config.AIProvider primary, GameSnapshot snapshot, String userRequest,
+                                                                Consumer<String> lineConsumer) {
+        Config.AIProvider secondary = Config.hedgingEnabled ? Config.secondaryProvider : null;
+        if (secondary == null || secondary == primary || ProviderRegistry.get(secondary) == null) {
+            return new HedgedRequest(snapshot, userRequest, lineConsumer).start(primary, null);
+        }
+
+        // 主服务商熔断时直接使用备用服务商 / Go straight to the secondary while the primary's breaker is open
+        boolean primaryOpen = breaker(primary).isOpen();
+        boolean secondaryOpen = breaker(secondary).isOpen();
+        if (primaryOpen && !secondaryOpen) {
+            LOGGER.info("Skipping {} while its circuit breaker is open", primary);
+            return new HedgedRequest(snapshot, userRequest, lineConsumer).start(secondary, null);
+        }
+        return new HedgedRequest(snapshot, userRequest, lineConsumer).start(primary, secondaryOpen ? null : secondary);
+    }
+
+    /**
+     * 对冲延迟：主服务商最近延迟的分位数，限制在配置范围内 / Hedge delay: a percentile of the primary's recent latency, clamped to the configured range
+     */
+    public static long hedgeDelayMillis(Config.AIProvider provider) {
+        LatencyTracker tracker = latencies(provider);
+        if (tracker.count() < MIN_LATENCY_SAMPLES) {
+            return Config.hedgeMaxDelayMs;
+        }
+        long percentile = tracker.percentile(Config.hedgePercentile);
+        return Math.max(Config.hedgeMinDelayMs, Math.min(Config.hedgeMaxDelayMs, percentile));
+    }
+
+    private static synchronized LatencyTracker latencies(Config.AIProvider provider) {
+        return latencies.computeIfAbsent(provider, p -> new LatencyTracker(LATENCY_WINDOW));
+    }
+
+    /**
+     * 服务商提示缓存的命中统计 / Prompt cache hit statistics of a provider
+     */
+    public static synchronized PromptCacheStats promptCacheStats(Config.AIProvider provider) {
+        return promptCacheStats.computeIfAbsent(provider, p -> new PromptCacheStats());
+    }
+
+    private static synchronized CircuitBreaker breaker(Config.AIProvider provider) {
+        return breakers.computeIfAbsent(provider, p -> new CircuitBreaker());
+    }
+
+    private static boolean isValid(Completion result, Throwable throwable) {
+        return throwable == null && result != null && !result.isError();
+    }
+
+    /**
+     * 一个正在进行的请求和等待它的调用者 / One request in flight and the callers waiting for it
+     */
+    private static final class InFlight {
+        private final String position;
+        private final CompletableFuture<GenerationResult> shared = new CompletableFuture<>();
+        private CompletableFuture<GenerationResult> dispatched;
+        private int waiters = 1;
+
+        private InFlight(String position) {
+            this.position = position;
+        }
+
+        /**
+         * 加入等待，所有调用者都已放弃时返回false / Join the wait, or return false when every caller has already given up
+         */
+        private synchronized boolean join() {
+            if (waiters == 0) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        private synchronized void attach(CompletableFuture<GenerationResult> dispatched) {
+            this.dispatched = dispatched;
+            if (waiters == 0) {
+                dispatched.cancel(true);
+            }
+        }
+
+        /**
+         * 一个调用者放弃等待，最后一个放弃时中止请求 / One caller gives up; the last one to give up aborts the request
+         */
+        private void leave(String cacheKey) {
+            CompletableFuture<GenerationResult> toCancel;
+            synchronized (this) {
+                if (--waiters > 0) {
+                    return;
+                }
+                toCancel = dispatched;
+            }
+            inFlight.remove(cacheKey, this);
+            shared.cancel(true);
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+        }
+
+        /**
+         * 调用者自己的 future；followUp 返回非null时改用它的结果 / The caller's own future; when followUp returns non-null, its result is used instead
+         */
+        private CompletableFuture<GenerationResult> view(String cacheKey,
+                                                         Function<GenerationResult, CompletableFuture<GenerationResult>> followUp) {
+            CompletableFuture<GenerationResult> view = new CompletableFuture<>();
+            shared.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    view.completeExceptionally(throwable);
+                    return;
+                }
+                CompletableFuture<GenerationResult> own = followUp.apply(result);
+                if (own == null) {
+                    view.complete(result);
+                    return;
+                }
+                view.whenComplete((value, error) -> own.cancel(true));
+                own.whenComplete((value, error) -> {
+                    if (error != null) {
+                        view.completeExceptionally(error);
+                    } else {
+                        view.complete(value);
+                    }
+                });
+            });
+            view.whenComplete((value, throwable) -> {
+                if (view.isCancelled()) {
+                    leave(cacheKey);
+                }
+            });
+            return view;
+        }
+    }
+
+    /**
+     * 一次对冲请求的状态 / State of one hedged request
+     */
+    private static final class HedgedRequest {
+        private final GameSnapshot snapshot;
+        private final String userRequest;
+        private final Consumer<String> lineConsumer;
+        private final CompletableFuture<GenerationResult> result = new CompletableFuture<>();
+        // 第一个输出行的服务商拥有流，另一方的行被丢弃 / The provider that emits the first line owns the stream; the other's lines are dropped
+        private final AtomicReference<Config.AIProvider> streamOwner = new AtomicReference<>();
+        private CompletableFuture<Completion> primaryFuture;
+        private CompletableFuture<Completion> backupFuture;
+        private Config.AIProvider backup;
+        private int running = 0;
+        private GenerationResult lastError;
+
+        private HedgedRequest(GameSnapshot snapshot, String userRequest, Consumer<String> lineConsumer) {
+            this.snapshot = snapshot;
+            this.userRequest = userRequest;
+            this.lineConsumer = lineConsumer;
+        }
+
+        private CompletableFuture<GenerationResult> start(Config.AIProvider primary, Config.AIProvider backup) {
+            this.backup = backup;
+            synchronized (this) {
+                this.primaryFuture = launch(primary);
+            }
+            // 取消整个请求时中止两边的HTTP请求 / Cancelling the whole request aborts the HTTP requests on both sides
+            result.whenComplete((value, throwable) -> {
+                if (result.isCancelled()) {
+                    cancelAll();
+                }
+            });
+            if (backup != null) {
+                long delay = hedgeDelayMillis(primary);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                    if (launchBackup()) {
+                        LOGGER.info("{} slower than {} ms, sending hedged request to {}", primary, delay, backup);
+                    }
+                });
+            }
+            return result;
+        }
+
+        /**
+         * 发送备用请求，已发送或已有结果时不重复发送 / Send the backup request unless it was already sent or a result exists
+         */
+        private synchronized boolean launchBackup() {
+            if (backup == null || backupFuture != null || result.isDone() || streamOwner.get() != null) {
+                return false;
+            }
+            backupFuture = launch(backup);
+            return true;
+        }
+
+        private synchronized CompletableFuture<Completion> launch(Config.AIProvider provider) {
+            running++;
+            long startNanos = System.nanoTime();
+            Consumer<String> consumer = lineConsumer == null ? null : line -> {
+                if (streamOwner.compareAndSet(null, provider) || streamOwner.get() == provider) {
+                    lineConsumer.accept(line);
+                }
+            };
+            CompletableFuture<Completion> future = ProviderRegistry.get(provider).generateCommand(snapshot, userRequest, consumer);
+            future.whenComplete((value, throwable) -> onComplete(provider, startNanos, value, throwable));
+            return future;
+        }
+
+        private void onComplete(Config.AIProvider provider, long startNanos, Completion value, Throwable throwable) {
+            boolean valid = isValid(value, throwable);
+            if (valid) {
+                long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                latencies(provider).record(latencyMillis);
+                promptCacheStats(provider).record(value.usage(), latencyMillis);
+                breaker(provider).recordSuccess();
+            } else if (!(throwable instanceof CancellationException)) {
+                breaker(provider).recordFailure();
+            }
+
+            boolean failover;
+            synchronized (this) {
+                running--;
+                if (result.isDone()) {
+                    return;
+                }
+                Config.AIProvider owner = streamOwner.get();
+                if (owner != null && owner != provider) {
+                    return; // 等待流的拥有者 / Wait for the stream owner
+                }
+                if (valid || owner == provider) {
+                    complete(provider, valid
+                            ? new GenerationResult(value.text(), provider, false, value.usage())
+                            : new GenerationResult(errorOf(value, throwable), provider, false, TokenUsage.NONE));
+                    return;
+                }
+                lastError = new GenerationResult(errorOf(value, throwable), provider, false, TokenUsage.NONE);
+                // 主请求失败时立即转移到备用服务商 / Fail over to the secondary immediately when a request fails
+                failover = backup != null && backupFuture == null;
+                if (!failover && running == 0) {
+                    result.complete(lastError);
+                    return;
+                }
+            }
+            if (failover && launchBackup()) {
+                LOGGER.info("{} failed, failing over to {}", provider, backup);
+            }
+        }
+
+        private synchronized void cancelAll() {
+            primaryFuture.cancel(true);
+            if (backupFuture != null) {
+                backupFuture.cancel(true);
+            }
+        }
+
+        private void complete(Config.AIProvider winner, GenerationResult value) {
+            result.complete(value);
+            // 取消落败的请求 / Cancel the losing request
+            CompletableFuture<Completion> loser = winner == backup ? primaryFuture : backupFuture;
+            if (loser != null && !loser.isDone()) {
+                loser.cancel(true);
+                LOGGER.debug("{} answered first, cancelled the other request", winner);
+            }
+        }
+
+        private static String errorOf(Completion value, Throwable throwable) {
+            if (throwable instanceof TimeoutException) {
+                return "Error: Request timed out";
+            }
+            if (throwable != null) {
+                return "Error: Failed to generate command - " + throwable.getMessage();
+            }
+            return value != null ? value.text() : "Error: No response from API";
+        }
+    }
+}
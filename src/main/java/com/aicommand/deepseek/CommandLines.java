@@ -0,0 +1,45 @@
+package com.aicommand.deepseek;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 指令行 - 把模型返回的文本拆成一行一条、以斜杠开头的指令，客户端和服务器共用
+ * Command Lines - Splits the model's text into one command per line, each starting with a slash; shared by the client and the server
+ */
+public final class CommandLines {
+
+    private CommandLines() {
+    }
+
+    /**
+     * 规范化一行：去掉首尾空白并补上斜杠，空行返回 null / Normalize one line: trim it and add the slash; blank lines give null
+     */
+    public static String normalize(String line) {
+        String command = line.trim();
+        if (command.isEmpty()) {
+            return null;
+        }
+        return command.startsWith("/") ? command : "/" + command;
+    }
+
+    /**
+     * 拆分完整的回复文本，跳过空行 / Split a whole reply, skipping blank lines
+     */
+    public static List<String> split(String text) {
+        List<String> commands = new ArrayList<>();
+        int start = 0;
+        while (start <= text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            String command = normalize(text.substring(start, end));
+            if (command != null) {
+                commands.add(command);
+            }
+            start = end + 1;
+        }
+        return commands;
+    }
+}
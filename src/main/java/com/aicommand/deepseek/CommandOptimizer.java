@@ -0,0 +1,196 @@
+package com.aicommand.deepseek;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 指令优化器 - 把连续的 /setblock 按方块分组，合并成尽量大的 /fill 长方体，并去掉被覆盖的写入
+ * Command Optimizer - Groups runs of /setblock commands by block, merges them into maximal /fill boxes and drops writes that get overwritten
+ *
+ * <p>只合并替换模式、整数坐标的 setblock；其它指令和坐标系的切换都作为分隔，前后的 setblock 不会跨过它合并，以保持执行顺序的语义。
+ * 绝对坐标和 ~ 相对坐标可能落在同一个方块上，所以不同坐标系的写入不能放在一起重排。
+ * Only replace-mode setblocks with integer coordinates are merged; any other command, and any change of coordinate frame, acts as a barrier
+ * that setblocks are never merged across, so execution order keeps its meaning. An absolute and a ~ relative write may land on the same
+ * block, so writes in different frames are never reordered together.</p>
+ */
+public class CommandOptimizer {
+    // /fill 单次最多修改的方块数 / Maximum number of blocks a single /fill may change
+    public static final int MAX_FILL_VOLUME = 32768;
+
+    /**
+     * 优化结果 / Optimization result
+     */
+    public record Result(List<String> commands, int originalCount) {
+        public int removed() {
+            return originalCount - commands.size();
+        }
+    }
+
+    /**
+     * 坐标系：每个轴是绝对坐标还是 ~ 相对坐标 / Coordinate frame: whether each axis is absolute or ~ relative
+     */
+    private record Frame(boolean relativeX, boolean relativeY, boolean relativeZ) {
+    }
+
+    private record Pos(int x, int y, int z) {
+    }
+
+    /**
+     * 分组键：同一坐标系下的同一方块 / Group key: the same block in the same coordinate frame
+     */
+    private record Group(Frame frame, String block) {
+    }
+
+    private record SetBlock(Frame frame, Pos pos, String block) {
+    }
+
+    public static Result optimize(List<String> commands) {
+        List<String> output = new ArrayList<>(commands.size());
+        List<SetBlock> run = new ArrayList<>();
+        for (String command : commands) {
+            SetBlock setBlock = parseSetBlock(command);
+            if (setBlock != null) {
+                if (!run.isEmpty() && !run.get(0).frame().equals(setBlock.frame())) {
+                    flush(run, output);
+                }
+                run.add(setBlock);
+                continue;
+            }
+            flush(run, output);
+            output.add(command);
+        }
+        flush(run, output);
+        return new Result(output, commands.size());
+    }
+
+    /**
+     * 合并一段连续的、坐标系相同的 setblock / Merge one run of consecutive setblocks in the same coordinate frame
+     */
+    private static void flush(List<SetBlock> run, List<String> output) {
+        if (run.isEmpty()) {
+            return;
+        }
+        // 同一位置后写的覆盖先写的；去重后位置互不相同，分组重排不会改变结果 / A later write to the same position replaces the earlier one; after that every position is distinct, so regrouping cannot change the result
+        Frame frame = run.get(0).frame();
+        Map<Pos, String> lastWrites = new LinkedHashMap<>();
+        for (SetBlock setBlock : run) {
+            lastWrites.remove(setBlock.pos());
+            lastWrites.put(setBlock.pos(), setBlock.block());
+        }
+        Map<Group, Set<Pos>> groups = new LinkedHashMap<>();
+        lastWrites.forEach((pos, block) -> groups.computeIfAbsent(new Group(frame, block), group -> new HashSet<>()).add(pos));
+        groups.forEach((group, positions) -> mergeBoxes(group, positions, output));
+        run.clear();
+    }
+
+    /**
+     * 贪心三维合并：从最小的未覆盖位置开始，依次沿 x、z、y 扩展 / Greedy 3D merge: start from the smallest uncovered position and grow along x, then z, then y
+     */
+    private static void mergeBoxes(Group group, Set<Pos> positions, List<String> output) {
+        List<Pos> seeds = new ArrayList<>(positions);
+        seeds.sort(Comparator.comparingInt(Pos::y).thenComparingInt(Pos::z).thenComparingInt(Pos::x));
+        Set<Pos> remaining = new HashSet<>(positions);
+        for (Pos seed : seeds) {
+            if (!remaining.contains(seed)) {
+                continue;
+            }
+            int sizeX = 1;
+            while (sizeX < MAX_FILL_VOLUME && remaining.contains(new Pos(seed.x() + sizeX, seed.y(), seed.z()))) {
+                sizeX++;
+            }
+            int sizeZ = 1;
+            while ((long) sizeX * (sizeZ + 1) <= MAX_FILL_VOLUME && isFilled(remaining, seed.x(), sizeX, seed.y(), 1, seed.z() + sizeZ, 1)) {
+                sizeZ++;
+            }
+            int sizeY = 1;
+            while ((long) sizeX * sizeZ * (sizeY + 1) <= MAX_FILL_VOLUME && isFilled(remaining, seed.x(), sizeX, seed.y() + sizeY, 1, seed.z(), sizeZ)) {
+                sizeY++;
+            }
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    for (int x = 0; x < sizeX; x++) {
+                        remaining.remove(new Pos(seed.x() + x, seed.y() + y, seed.z() + z));
+                    }
+                }
+            }
+            Frame frame = group.frame();
+            if (sizeX * sizeY * sizeZ == 1) {
+                output.add("/setblock " + coordinates(frame, seed.x(), seed.y(), seed.z()) + " " + group.block());
+            } else {
+                output.add("/fill " + coordinates(frame, seed.x(), seed.y(), seed.z()) + " "
+                        + coordinates(frame, seed.x() + sizeX - 1, seed.y() + sizeY - 1, seed.z() + sizeZ - 1) + " " + group.block());
+            }
+        }
+    }
+
+    private static boolean isFilled(Set<Pos> remaining, int x0, int sizeX, int y0, int sizeY, int z0, int sizeZ) {
+        for (int y = y0; y < y0 + sizeY; y++) {
+            for (int z = z0; z < z0 + sizeZ; z++) {
+                for (int x = x0; x < x0 + sizeX; x++) {
+                    if (!remaining.contains(new Pos(x, y, z))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解析可合并的 setblock，其它情况返回 null / Parse a mergeable setblock, or return null otherwise
+     */
+    private static SetBlock parseSetBlock(String command) {
+        String input = command.startsWith("/") ? command.substring(1) : command;
+        String[] parts = input.trim().split("\\s+", 5);
+        if (parts.length < 5 || !parts[0].equals("setblock")) {
+            return null;
+        }
+        String block = parts[4].trim();
+        // keep/destroy 的语义与写入顺序有关，不合并 / keep/destroy depend on write order, so they are not merged
+        if (block.endsWith(" keep") || block.endsWith(" destroy")) {
+            return null;
+        }
+        if (block.endsWith(" replace")) {
+            block = block.substring(0, block.length() - " replace".length()).trim();
+        }
+        Integer x = coordinate(parts[1]);
+        Integer y = coordinate(parts[2]);
+        Integer z = coordinate(parts[3]);
+        if (x == null || y == null || z == null) {
+            return null;
+        }
+        Frame frame = new Frame(parts[1].startsWith("~"), parts[2].startsWith("~"), parts[3].startsWith("~"));
+        return new SetBlock(frame, new Pos(x, y, z), block);
+    }
+
+    /**
+     * 整数的绝对或 ~ 相对坐标；^ 局部坐标和小数不处理 / Integer absolute or ~ relative coordinate; ^ local coordinates and decimals are not handled
+     */
+    private static Integer coordinate(String token) {
+        String number = token.startsWith("~") ? token.substring(1) : token;
+        if (number.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String coordinates(Frame frame, int x, int y, int z) {
+        return coordinate(frame.relativeX(), x) + " " + coordinate(frame.relativeY(), y) + " " + coordinate(frame.relativeZ(), z);
+    }
+
+    private static String coordinate(boolean relative, int value) {
+        if (!relative) {
+            return Integer.toString(value);
+        }
+        return value == 0 ? "~" : "~" + value;
+    }
+}
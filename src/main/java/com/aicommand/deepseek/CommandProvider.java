@@ -0,0 +1,42 @@
+package com.aicommand.deepseek;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * AI服务商接口 - 所有指令生成后端的统一入口
+ * Command Provider - Common entry point for every command generation backend
+ */
+public interface CommandProvider {
+
+    /**
+     * 当前生效的服务商设置 / The provider settings currently in effect
+     */
+    ProviderSettings settings();
+
+    /**
+     * 在运行时覆盖配置中的API密钥 / Override the configured API key at runtime
+     */
+    void setApiKey(String apiKey);
+
+    /**
+     * 预先建立到API的连接 / Establish the connection to the API ahead of the first request
+     */
+    CompletableFuture<Void> warmUp();
+
+    /**
+     * 根据游戏快照生成指令，流式模式下每完成一行就回调一次 / Generate commands for a game snapshot, calling back once per finished line in streaming mode
+     *
+     * <p>取消返回的 future 会中止HTTP请求；超过请求超时时间的请求以 TimeoutException 结束。
+     * Cancelling the returned future aborts the HTTP request; a request past its timeout ends with a TimeoutException.</p>
+     */
+    CompletableFuture<Completion> generateCommand(GameSnapshot snapshot, String userRequest, Consumer<String> lineConsumer);
+
+    default CompletableFuture<Completion> generateCommand(GameSnapshot snapshot, String userRequest) {
+        return generateCommand(snapshot, userRequest, null);
+    }
+
+    default String displayName() {
+        return settings().displayName();
+    }
+}
@@ -0,0 +1,84 @@
+package com.aicommand.deepseek;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.ParseResults;
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientPacketListener;
+import net.minecraft.client.multiplayer.ClientSuggestionProvider;
+import net.minecraft.commands.Commands;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 指令校验器 - 用客户端的 Brigadier 指令树在本地解析生成的指令，发送前就能发现错误
+ * Command Validator - Parses generated commands locally against the client's Brigadier command tree, so errors show up before anything is sent
+ *
+ * <p>客户端指令树来自服务器，只包含玩家有权限使用的指令。只能在客户端主线程调用。
+ * The client command tree comes from the server and only contains the commands the player may use. Client thread only.</p>
+ */
+public class CommandValidator {
+    private static final int MAX_CACHED_RESULTS = 512;
+
+    // 解析结果缓存，指令树更换时清空 / Parse result cache, cleared when the command tree is replaced
+    private static final Map<String, Validation> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Validation> eldest) {
+            return size() > MAX_CACHED_RESULTS;
+        }
+    };
+    private static CommandDispatcher<ClientSuggestionProvider> cachedDispatcher;
+
+    /**
+     * 校验结果，error 为 null 表示有效 / Validation result; a null error means valid
+     */
+    public record Validation(String error) {
+        public static final Validation VALID = new Validation(null);
+
+        public boolean isValid() {
+            return error == null;
+        }
+    }
+
+    /**
+     * 校验一条指令，可以带或不带开头的斜杠 / Validate one command, with or without the leading slash
+     */
+    public static Validation validate(String command) {
+        if (!Config.validateCommands) {
+            return Validation.VALID;
+        }
+        ClientPacketListener connection = Minecraft.getInstance().getConnection();
+        if (connection == null) {
+            return Validation.VALID; // 没有连接时无法执行，也无从校验 / Nothing to check against and nothing can run without a connection
+        }
+        CommandDispatcher<ClientSuggestionProvider> dispatcher = connection.getCommands();
+        if (dispatcher != cachedDispatcher) {
+            // 服务器重新发送了指令树 / The server sent a new command tree
+            CACHE.clear();
+            cachedDispatcher = dispatcher;
+        }
+        String input = command.startsWith("/") ? command.substring(1) : command;
+        Validation cached = CACHE.get(input);
+        if (cached != null) {
+            return cached;
+        }
+        Validation result = parse(dispatcher, connection.getSuggestionsProvider(), input);
+        CACHE.put(input, result);
+        return result;
+    }
+
+    private static Validation parse(CommandDispatcher<ClientSuggestionProvider> dispatcher, ClientSuggestionProvider source, String input) {
+        ParseResults<ClientSuggestionProvider> results = dispatcher.parse(new StringReader(input), source);
+        CommandSyntaxException exception = Commands.getParseException(results);
+        if (exception != null) {
+            return new Validation(exception.getMessage());
+        }
+        if (results.getContext().getCommand() == null) {
+            // 指令树中可执行的节点都带有命令 / Executable nodes in the tree always carry a command
+            return new Validation("Incomplete command");
+        }
+        return Validation.VALID;
+    }
+}
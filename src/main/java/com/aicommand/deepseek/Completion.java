@@ -0,0 +1,18 @@
+package com.aicommand.deepseek;
+
+/**
+ * 服务商返回的一次补全 / One completion returned by a provider
+ *
+ * @param text  生成的指令文本或以"Error:"开头的错误 / Generated command text, or an error starting with "Error:"
+ * @param usage 服务商报告的令牌用量 / Token usage reported by the provider
+ */
+public record Completion(String text, TokenUsage usage) {
+
+    public static Completion error(String message) {
+        return new Completion(message, TokenUsage.NONE);
+    }
+
+    public boolean isError() {
+        return text.startsWith("Error:");
+    }
+}
@@ -8,7 +8,10 @@ import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.config.ModConfigEvent;
 import net.minecraftforge.registries.ForgeRegistries;
 
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -44,17 +47,298 @@ public class Config {
             .comment("OpenAI API key for command generation")
             .define("openAIApiKey", "");
 
+    private static final ForgeConfigSpec.ConfigValue<String> CUSTOM_API_KEY = BUILDER
+            .comment("API key for the custom OpenAI-compatible endpoint (leave empty if it needs none)")
+            .define("customApiKey", "");
+
     private static final ForgeConfigSpec.EnumValue<AIProvider> AI_PROVIDER = BUILDER
-            .comment("AI service provider to use (DEEPSEEK or OPENAI)")
+            .comment("AI service provider to use (DEEPSEEK, OPENAI or CUSTOM)")
             .defineEnum("aiProvider", AIProvider.DEEPSEEK);
 
     private static final ForgeConfigSpec.BooleanValue IS_FIRST_USE = BUILDER
             .comment("Whether this is the first time using the mod")
             .define("isFirstUse", true);
 
+    private static final ForgeConfigSpec.BooleanValue STREAM_RESPONSES = BUILDER
+            .comment("Stream completions and show each command as soon as its line arrives")
+            .define("streamResponses", true);
+
+    private static final ForgeConfigSpec.BooleanValue VALIDATE_COMMANDS = BUILDER
+            .comment("Parse generated commands against the client's command tree and refuse to run the invalid ones")
+            .define("validateCommands", true);
+
+    private static final ForgeConfigSpec.BooleanValue OPTIMIZE_COMMANDS = BUILDER
+            .comment("Merge runs of /setblock commands into /fill boxes and drop overwritten writes before executing")
+            .define("optimizeCommands", true);
+
+    private static final ForgeConfigSpec.EnumValue<ContextFormat> CONTEXT_FORMAT = BUILDER
+            .comment("Game context format: COMPACT (terse single-language key=value lines) or VERBOSE (bilingual, more tokens)")
+            .defineEnum("contextFormat", ContextFormat.COMPACT);
+
+    private static final ForgeConfigSpec.IntValue CONTEXT_TOKEN_BUDGET = BUILDER
+            .comment("Approximate token budget for the COMPACT game context; the facts most relevant to the request are kept (0 = send everything)")
+            .defineInRange("contextTokenBudget", 80, 0, 4096);
+
+    // 各服务商的端点配置 / Per-provider endpoint configuration
+    private static final ProviderValues DEEPSEEK_VALUES = new ProviderValues("deepseek",
+            "DeepSeek endpoint settings", DeepSeekClient.DEFAULT_BASE_URL, DeepSeekClient.DEFAULT_CHAT_ENDPOINT, DeepSeekClient.DEFAULT_MODEL);
+
+    private static final ProviderValues OPENAI_VALUES = new ProviderValues("openai",
+            "OpenAI endpoint settings", OpenAIClient.DEFAULT_BASE_URL, OpenAIClient.DEFAULT_CHAT_ENDPOINT, OpenAIClient.DEFAULT_MODEL);
+
+    private static final ProviderValues CUSTOM_VALUES = new ProviderValues("custom",
+            "Custom OpenAI-compatible endpoint, e.g. a self-hosted inference server on the LAN or a local mock",
+            "http://localhost:8000", "/v1/chat/completions", "local-model");
+
+    // 重试配置 / Retry configuration
+    private static final ForgeConfigSpec.IntValue RETRY_MAX_ATTEMPTS;
+    private static final ForgeConfigSpec.IntValue RETRY_BASE_DELAY_MS;
+    private static final ForgeConfigSpec.IntValue RETRY_MAX_DELAY_MS;
+
+    static {
+        BUILDER.comment("Retries of failed provider requests with jittered exponential backoff; Retry-After is honoured").push("retry");
+        RETRY_MAX_ATTEMPTS = BUILDER
+                .comment("Maximum attempts per request, including the first one (1 = never retry)")
+                .defineInRange("maxAttempts", 3, 1, 10);
+        RETRY_BASE_DELAY_MS = BUILDER
+                .comment("Backoff before the first retry in milliseconds; doubles with every further attempt")
+                .defineInRange("baseDelayMs", 500, 0, 60000);
+        RETRY_MAX_DELAY_MS = BUILDER
+                .comment("Upper bound of the backoff in milliseconds when the server sends no Retry-After")
+                .defineInRange("maxDelayMs", 8000, 0, 600000);
+        BUILDER.pop();
+    }
+
+    // 对冲请求和熔断配置 / Hedged request and circuit breaker configuration
+    private static final ForgeConfigSpec.BooleanValue HEDGING_ENABLED;
+    private static final ForgeConfigSpec.EnumValue<AIProvider> SECONDARY_PROVIDER;
+    private static final ForgeConfigSpec.IntValue HEDGE_PERCENTILE;
+    private static final ForgeConfigSpec.IntValue HEDGE_MIN_DELAY_MS;
+    private static final ForgeConfigSpec.IntValue HEDGE_MAX_DELAY_MS;
+    private static final ForgeConfigSpec.IntValue BREAKER_FAILURE_THRESHOLD;
+    private static final ForgeConfigSpec.IntValue BREAKER_OPEN_SECONDS;
+
+    static {
+        BUILDER.comment("Hedged requests: send a backup request to a second provider when the first one is slow or fails").push("hedging");
+        HEDGING_ENABLED = BUILDER
+                .comment("Whether to send hedged/failover requests to the secondary provider")
+                .define("enabled", false);
+        SECONDARY_PROVIDER = BUILDER
+                .comment("Provider that receives the backup request")
+                .defineEnum("secondaryProvider", AIProvider.OPENAI);
+        HEDGE_PERCENTILE = BUILDER
+                .comment("The backup request is sent once the primary has been slower than this percentile of its recent latencies")
+                .defineInRange("percentile", 95, 50, 99);
+        HEDGE_MIN_DELAY_MS = BUILDER
+                .comment("Lower bound of the hedge delay in milliseconds")
+                .defineInRange("minDelayMs", 500, 0, 60000);
+        HEDGE_MAX_DELAY_MS = BUILDER
+                .comment("Upper bound of the hedge delay in milliseconds, also used until enough latencies are known")
+                .defineInRange("maxDelayMs", 8000, 0, 600000);
+        BREAKER_FAILURE_THRESHOLD = BUILDER
+                .comment("Consecutive failures after which a provider is skipped")
+                .defineInRange("breakerFailureThreshold", 3, 1, 100);
+        BREAKER_OPEN_SECONDS = BUILDER
+                .comment("How long a failing provider is skipped, in seconds")
+                .defineInRange("breakerOpenSeconds", 30, 1, 3600);
+        BUILDER.pop();
+    }
+
+    // 响应缓存配置 / Response cache configuration
+    private static final ForgeConfigSpec.BooleanValue RESPONSE_CACHE_ENABLED;
+    private static final ForgeConfigSpec.IntValue RESPONSE_CACHE_MAX_ENTRIES;
+    private static final ForgeConfigSpec.IntValue RESPONSE_CACHE_TTL_SECONDS;
+    private static final ForgeConfigSpec.BooleanValue RESPONSE_CACHE_DISK;
+
+    static {
+        BUILDER.comment("Cache of generated commands keyed by request and relevant game state").push("responseCache");
+        RESPONSE_CACHE_ENABLED = BUILDER
+                .comment("Whether repeated requests are answered from the cache")
+                .define("enabled", true);
+        RESPONSE_CACHE_MAX_ENTRIES = BUILDER
+                .comment("Maximum number of cached responses")
+                .defineInRange("maxEntries", 256, 1, 100000);
+        RESPONSE_CACHE_TTL_SECONDS = BUILDER
+                .comment("How long a cached response stays valid, in seconds")
+                .defineInRange("ttlSeconds", 3600, 1, 30 * 24 * 3600);
+        RESPONSE_CACHE_DISK = BUILDER
+                .comment("Whether the cache is also stored on disk so it survives restarts")
+                .define("disk", false);
+        BUILDER.pop();
+    }
+
+    // 指令执行配置 / Command execution configuration
+    private static final ForgeConfigSpec.IntValue COMMANDS_PER_TICK;
+    private static final ForgeConfigSpec.DoubleValue NON_OP_COMMANDS_PER_TICK;
+    private static final ForgeConfigSpec.BooleanValue ADAPTIVE_EXECUTION;
+    private static final ForgeConfigSpec.IntValue FUNCTION_THRESHOLD;
+    private static final ForgeConfigSpec.BooleanValue DIRECT_DISPATCH;
+
+    static {
+        BUILDER.comment("Generated commands are sent from the client tick instead of all at once").push("execution");
+        COMMANDS_PER_TICK = BUILDER
+                .comment("Maximum number of commands sent per client tick when the player is an operator")
+                .defineInRange("commandsPerTick", 1, 1, 64);
+        NON_OP_COMMANDS_PER_TICK = BUILDER
+                .comment("Maximum commands per client tick for non-operators. Vanilla kicks non-operators who average more than one command per second (0.05 per tick)")
+                .defineInRange("nonOpCommandsPerTick", 0.04, 0.01, 64.0);
+        ADAPTIVE_EXECUTION = BUILDER
+                .comment("Lower the rate when the server answers with errors or spam warnings, and raise it again while it does not")
+                .define("adaptive", true);
+        FUNCTION_THRESHOLD = BUILDER
+                .comment("In singleplayer, batches of at least this many commands run as one datapack function on the server thread (0 = never)")
+                .defineInRange("functionThreshold", 64, 0, 1000000);
+        DIRECT_DISPATCH = BUILDER
+                .comment("In singleplayer, run commands directly on the integrated server thread instead of sending them as packets")
+                .define("directDispatch", true);
+        BUILDER.pop();
+    }
+
+    // 周围环境扫描配置 / Surroundings scan configuration
+    private static final ForgeConfigSpec.IntValue SURROUNDINGS_RADIUS;
+    private static final ForgeConfigSpec.IntValue SURROUNDINGS_CACHE_SECONDS;
+
+    static {
+        BUILDER.comment("3D scan of the blocks around the player, summarised per chunk section").push("surroundings");
+        SURROUNDINGS_RADIUS = BUILDER
+                .comment("Scan radius in blocks, rounded out to whole 16x16x16 chunk sections (0 = disabled)")
+                .defineInRange("radius", 16, 0, 32);
+        SURROUNDINGS_CACHE_SECONDS = BUILDER
+                .comment("How long a section summary is reused before it is recounted, in seconds; blocks the player clicks are recounted right away")
+                .defineInRange("cacheSeconds", 10, 1, 600);
+        BUILDER.pop();
+    }
+
+    // 服务器 /ai 指令配置 / Server /ai command configuration
+    private static final ForgeConfigSpec.IntValue SERVER_PERMISSION_LEVEL;
+    private static final ForgeConfigSpec.IntValue SERVER_MAX_CONCURRENT;
+    private static final ForgeConfigSpec.IntValue SERVER_MAX_QUEUED;
+    private static final ForgeConfigSpec.IntValue SERVER_MAX_PER_PLAYER;
+    private static final ForgeConfigSpec.IntValue SERVER_COOLDOWN_SECONDS;
+    private static final ForgeConfigSpec.BooleanValue SERVER_AUTO_EXECUTE;
+
+    static {
+        BUILDER.comment("The /ai command: the server generates commands for its players through one shared, bounded queue").push("server");
+        SERVER_PERMISSION_LEVEL = BUILDER
+                .comment("Permission level required to use /ai (0 = everyone, 2 = operators)")
+                .defineInRange("permissionLevel", 2, 0, 4);
+        SERVER_MAX_CONCURRENT = BUILDER
+                .comment("Maximum number of requests sent to the AI provider at the same time")
+                .defineInRange("maxConcurrent", 4, 1, 64);
+        SERVER_MAX_QUEUED = BUILDER
+                .comment("Maximum number of requests waiting in the queue across all players")
+                .defineInRange("maxQueued", 64, 1, 4096);
+        SERVER_MAX_PER_PLAYER = BUILDER
+                .comment("Maximum number of requests one player may have queued or running")
+                .defineInRange("maxPerPlayer", 2, 1, 64);
+        SERVER_COOLDOWN_SECONDS = BUILDER
+                .comment("Minimum time between two requests of the same player, in seconds")
+                .defineInRange("cooldownSeconds", 10, 0, 3600);
+        SERVER_AUTO_EXECUTE = BUILDER
+                .comment("Run the generated commands with the player's permissions; otherwise they are only shown as clickable suggestions")
+                .define("autoExecute", true);
+        BUILDER.pop();
+    }
+
+    // 指标配置 / Metrics configuration
+    private static final ForgeConfigSpec.BooleanValue METRICS_OVERLAY;
+    private static final ForgeConfigSpec.EnumValue<MetricsExport> METRICS_EXPORT;
+
+    static {
+        BUILDER.comment("Per-request latency, token and size metrics, aggregated per provider and model").push("metrics");
+        METRICS_OVERLAY = BUILDER
+                .comment("Show the metrics overlay in the AI command screen (toggle in game with /aicommand stats overlay)")
+                .define("overlay", false);
+        METRICS_EXPORT = BUILDER
+                .comment("Append every request to aicommand/metrics.csv (CSV) or aicommand/metrics.jsonl (JSON) in the game directory")
+                .defineEnum("export", MetricsExport.NONE);
+        BUILDER.pop();
+    }
+
     public enum AIProvider {
-        DEEPSEEK,
-        OPENAI
+        DEEPSEEK("DeepSeek"),
+        OPENAI("OpenAI"),
+        CUSTOM("Custom");
+
+        private final String displayName;
+
+        AIProvider(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    public enum MetricsExport {
+        NONE,
+        CSV,
+        JSON
+    }
+
+    public enum ContextFormat {
+        COMPACT,
+        VERBOSE
+    }
+
+    /**
+     * 一个服务商配置段的取值 / Values of one provider config section
+     */
+    private static class ProviderValues {
+        private final ForgeConfigSpec.ConfigValue<String> baseUrl;
+        private final ForgeConfigSpec.ConfigValue<String> chatEndpoint;
+        private final ForgeConfigSpec.ConfigValue<String> model;
+        private final ForgeConfigSpec.IntValue connectTimeoutSeconds;
+        private final ForgeConfigSpec.IntValue requestTimeoutSeconds;
+        private final ForgeConfigSpec.IntValue maxTokens;
+        private final ForgeConfigSpec.IntValue requestsPerMinute;
+        private final ForgeConfigSpec.IntValue tokensPerMinute;
+
+        private ProviderValues(String section, String comment, String defaultBaseUrl, String defaultChatEndpoint, String defaultModel) {
+            BUILDER.comment(comment).push(section);
+            baseUrl = BUILDER
+                    .comment("Base URL of the API")
+                    .define("baseUrl", defaultBaseUrl);
+            chatEndpoint = BUILDER
+                    .comment("Path of the chat completions endpoint")
+                    .define("chatEndpoint", defaultChatEndpoint);
+            model = BUILDER
+                    .comment("Model name sent with every request")
+                    .define("model", defaultModel);
+            connectTimeoutSeconds = BUILDER
+                    .comment("Connection timeout in seconds")
+                    .defineInRange("connectTimeoutSeconds", 30, 1, 300);
+            requestTimeoutSeconds = BUILDER
+                    .comment("Request timeout in seconds")
+                    .defineInRange("requestTimeoutSeconds", 60, 1, 600);
+            maxTokens = BUILDER
+                    .comment("Maximum number of tokens in the completion")
+                    .defineInRange("maxTokens", 300, 1, 32768);
+            requestsPerMinute = BUILDER
+                    .comment("Client-side request limit per minute; set it to your account's RPM limit (0 = unlimited)")
+                    .defineInRange("requestsPerMinute", 60, 0, 1000000);
+            tokensPerMinute = BUILDER
+                    .comment("Client-side token limit per minute, counting the estimated prompt plus maxTokens; set it to your account's TPM limit (0 = unlimited)")
+                    .defineInRange("tokensPerMinute", 0, 0, 100000000);
+            BUILDER.pop();
+        }
+
+        private ProviderSettings toSettings(AIProvider provider, String apiKey) {
+            return new ProviderSettings(
+                    provider.getDisplayName(),
+                    baseUrl.get(),
+                    chatEndpoint.get(),
+                    model.get(),
+                    apiKey,
+                    provider != AIProvider.CUSTOM,
+                    Duration.ofSeconds(connectTimeoutSeconds.get()),
+                    Duration.ofSeconds(requestTimeoutSeconds.get()),
+                    maxTokens.get(),
+                    STREAM_RESPONSES.get(),
+                    requestsPerMinute.get(),
+                    tokensPerMinute.get());
+        }
     }
 
     static final ForgeConfigSpec SPEC = BUILDER.build();
@@ -65,8 +349,44 @@ public class Config {
     public static Set<Item> items;
     public static String deepSeekApiKey;
     public static String openAIApiKey;
+    public static String customApiKey;
     public static AIProvider aiProvider;
     public static boolean isFirstUse;
+    public static boolean streamResponses;
+    public static boolean validateCommands = true;
+    public static boolean optimizeCommands = true;
+    public static ContextFormat contextFormat = ContextFormat.COMPACT;
+    public static int contextTokenBudget;
+    public static int retryMaxAttempts = 3;
+    public static long retryBaseDelayMs = 500;
+    public static long retryMaxDelayMs = 8000;
+    public static boolean hedgingEnabled;
+    public static AIProvider secondaryProvider;
+    public static int hedgePercentile;
+    public static long hedgeMinDelayMs;
+    public static long hedgeMaxDelayMs;
+    public static int breakerFailureThreshold = 3;
+    public static int breakerOpenSeconds = 30;
+    public static boolean responseCacheEnabled;
+    public static int responseCacheMaxEntries = 256;
+    public static int responseCacheTtlSeconds = 3600;
+    public static boolean responseCacheDisk;
+    public static int commandsPerTick = 1;
+    public static double nonOpCommandsPerTick = 0.04;
+    public static boolean adaptiveExecution = true;
+    public static int functionThreshold = 64;
+    public static boolean directDispatch = true;
+    public static int surroundingsRadius;
+    public static int surroundingsCacheSeconds = 10;
+    public static int serverPermissionLevel = 2;
+    public static int serverMaxConcurrent = 4;
+    public static int serverMaxQueued = 64;
+    public static int serverMaxPerPlayer = 2;
+    public static int serverCooldownSeconds = 10;
+    public static boolean serverAutoExecute = true;
+    public static boolean metricsOverlay;
+    public static MetricsExport metricsExport = MetricsExport.NONE;
+    public static Map<AIProvider, ProviderSettings> providerSettings = new EnumMap<>(AIProvider.class);
 
     private static boolean validateItemName(final Object obj) {
         return obj instanceof final String itemName && ForgeRegistries.ITEMS.containsKey(ResourceLocation.tryParse(itemName));
@@ -79,12 +399,100 @@ public class Config {
         magicNumberIntroduction = MAGIC_NUMBER_INTRODUCTION.get();
         deepSeekApiKey = DEEPSEEK_API_KEY.get();
         openAIApiKey = OPENAI_API_KEY.get();
+        customApiKey = CUSTOM_API_KEY.get();
         aiProvider = AI_PROVIDER.get();
         isFirstUse = IS_FIRST_USE.get();
+        streamResponses = STREAM_RESPONSES.get();
+        validateCommands = VALIDATE_COMMANDS.get();
+        optimizeCommands = OPTIMIZE_COMMANDS.get();
+        contextFormat = CONTEXT_FORMAT.get();
+        contextTokenBudget = CONTEXT_TOKEN_BUDGET.get();
+        retryMaxAttempts = RETRY_MAX_ATTEMPTS.get();
+        retryBaseDelayMs = RETRY_BASE_DELAY_MS.get();
+        retryMaxDelayMs = RETRY_MAX_DELAY_MS.get();
+        hedgingEnabled = HEDGING_ENABLED.get();
+        secondaryProvider = SECONDARY_PROVIDER.get();
+        hedgePercentile = HEDGE_PERCENTILE.get();
+        hedgeMinDelayMs = HEDGE_MIN_DELAY_MS.get();
+        hedgeMaxDelayMs = HEDGE_MAX_DELAY_MS.get();
+        breakerFailureThreshold = BREAKER_FAILURE_THRESHOLD.get();
+        breakerOpenSeconds = BREAKER_OPEN_SECONDS.get();
+        responseCacheEnabled = RESPONSE_CACHE_ENABLED.get();
+        responseCacheMaxEntries = RESPONSE_CACHE_MAX_ENTRIES.get();
+        responseCacheTtlSeconds = RESPONSE_CACHE_TTL_SECONDS.get();
+        responseCacheDisk = RESPONSE_CACHE_DISK.get();
+        commandsPerTick = COMMANDS_PER_TICK.get();
+        nonOpCommandsPerTick = NON_OP_COMMANDS_PER_TICK.get();
+        adaptiveExecution = ADAPTIVE_EXECUTION.get();
+        functionThreshold = FUNCTION_THRESHOLD.get();
+        directDispatch = DIRECT_DISPATCH.get();
+        surroundingsRadius = SURROUNDINGS_RADIUS.get();
+        surroundingsCacheSeconds = SURROUNDINGS_CACHE_SECONDS.get();
+        serverPermissionLevel = SERVER_PERMISSION_LEVEL.get();
+        serverMaxConcurrent = SERVER_MAX_CONCURRENT.get();
+        serverMaxQueued = SERVER_MAX_QUEUED.get();
+        serverMaxPerPlayer = SERVER_MAX_PER_PLAYER.get();
+        serverCooldownSeconds = SERVER_COOLDOWN_SECONDS.get();
+        serverAutoExecute = SERVER_AUTO_EXECUTE.get();
+        metricsOverlay = METRICS_OVERLAY.get();
+        metricsExport = METRICS_EXPORT.get();
+
+        Map<AIProvider, ProviderSettings> settings = new EnumMap<>(AIProvider.class);
+        settings.put(AIProvider.DEEPSEEK, DEEPSEEK_VALUES.toSettings(AIProvider.DEEPSEEK, deepSeekApiKey));
+        settings.put(AIProvider.OPENAI, OPENAI_VALUES.toSettings(AIProvider.OPENAI, openAIApiKey));
+        settings.put(AIProvider.CUSTOM, CUSTOM_VALUES.toSettings(AIProvider.CUSTOM, customApiKey));
+        providerSettings = settings;
 
         // convert the list of strings into a set of items
         items = ITEM_STRINGS.get().stream()
                 .map(itemName -> ForgeRegistries.ITEMS.getValue(ResourceLocation.tryParse(itemName)))
                 .collect(Collectors.toSet());
+
+        // 服务商设置可能已变化，重建客户端 / Provider settings may have changed, rebuild the clients
+        ProviderRegistry.reload();
+    }
+
+    /**
+     * 获取服务商的API密钥 / Get the API key of a provider
+     */
+    public static String apiKey(AIProvider provider) {
+        return switch (provider) {
+            case DEEPSEEK -> deepSeekApiKey;
+            case OPENAI -> openAIApiKey;
+            case CUSTOM -> customApiKey;
+        };
+    }
+
+    /**
+     * 保存服务商的API密钥到配置文件 / Save a provider's API key to the config file
+     */
+    public static void saveApiKey(AIProvider provider, String apiKey) {
+        switch (provider) {
+            case DEEPSEEK -> {
+                deepSeekApiKey = apiKey;
+                DEEPSEEK_API_KEY.set(apiKey);
+            }
+            case OPENAI -> {
+                openAIApiKey = apiKey;
+                OPENAI_API_KEY.set(apiKey);
+            }
+            case CUSTOM -> {
+                customApiKey = apiKey;
+                CUSTOM_API_KEY.set(apiKey);
+            }
+        }
+    }
+
+    /**
+     * 保存AI服务商选择到配置文件 / Save the AI provider selection to the config file
+     */
+    public static void saveAiProvider(AIProvider provider) {
+        aiProvider = provider;
+        AI_PROVIDER.set(provider);
+    }
+
+    public static void saveMetricsOverlay(boolean overlay) {
+        metricsOverlay = overlay;
+        METRICS_OVERLAY.set(overlay);
     }
 }
@@ -0,0 +1,216 @@
+package com.aicommand.deepseek;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑上下文编码器 - 用预编译模板把快照写成单语言的 key=value 行，不使用 String.format
+ * Compact Context Encoder - Writes a snapshot as single-language key=value lines through precompiled templates, without String.format
+ */
+public class ContextEncoder {
+    private static final int MAX_INVENTORY_ITEMS = 10;
+    private static final String HEADER = "[game state]\n";
+
+    // 每个线程复用一个缓冲区 / One reused buffer per thread
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private static final Template<GameDataCollector.PlayerData> PLAYER = Template.compile(
+            "player name={name} hp={health}/{maxHealth} food={food}/20 xp={xp} mode={mode} pos={x},{y},{z} facing={facing}\n",
+            Map.of(
+                    "name", (out, p) -> out.append(p.playerName),
+                    "health", (out, p) -> appendOneDecimal(out, p.health),
+                    "maxHealth", (out, p) -> appendOneDecimal(out, p.maxHealth),
+                    "food", (out, p) -> out.append(p.foodLevel),
+                    "xp", (out, p) -> out.append(p.experienceLevel),
+                    "mode", (out, p) -> out.append(p.gameMode),
+                    "x", (out, p) -> out.append(p.positionX),
+                    "y", (out, p) -> out.append(p.positionY),
+                    "z", (out, p) -> out.append(p.positionZ),
+                    "facing", (out, p) -> out.append(p.facing)));
+
+    private static final Template<GameDataCollector.InventoryData> HANDS = Template.compile(
+            "hand{main}{off}\n",
+            Map.of(
+                    "main", (out, i) -> appendOptional(out, " main=", i.mainHandItem),
+                    "off", (out, i) -> appendOptional(out, " off=", i.offHandItem)));
+
+    private static final Template<GameDataCollector.InventoryData> ITEMS = Template.compile(
+            "inv {items}\n",
+            Map.of("items", ContextEncoder::appendItems));
+
+    private static final Template<GameDataCollector.WorldData> WORLD = Template.compile(
+            "world dim={dim} time={time}{weather}{biome}{below}\n",
+            Map.of(
+                    "dim", (out, w) -> out.append(w.dimensionName),
+                    "time", (out, w) -> out.append(w.isDay ? "day" : "night"),
+                    "weather", (out, w) -> appendOptional(out, " weather=", w.isThundering ? "thunder" : w.isRaining ? "rain" : null),
+                    "biome", (out, w) -> appendOptional(out, " biome=", w.biomeName),
+                    "below", (out, w) -> appendOptional(out, " below=", w.blockBelow)));
+
+    private static final Template<GameDataCollector.WorldData> NEARBY = Template.compile(
+            "near {blocks}\n",
+            Map.of("blocks", (out, w) -> out.append(String.join(",", w.nearbyBlocks))));
+
+    private static final Template<GameDataCollector.WorldData> FEATURES = Template.compile(
+            "features {features}\n",
+            Map.of("features", (out, w) -> out.append(String.join(";", w.nearbyFeatures))));
+
+    // 各部分最近一次的编码结果 / Last encoded text of each section
+    private static volatile Memo playerMemo;
+    private static volatile Memo inventoryMemo;
+    private static volatile Memo worldMemo;
+
+    private record Memo(Object source, String text) {
+    }
+
+    /**
+     * 把快照编码为紧凑上下文 / Encode a snapshot as compact context
+     */
+    public static String encode(GameSnapshot snapshot) {
+        String player = playerSection(snapshot.player());
+        String inventory = inventorySection(snapshot.inventory());
+        String world = worldSection(snapshot.world());
+
+        StringBuilder out = buffer();
+        out.append(HEADER).append(player).append(inventory).append(world);
+        return out.toString();
+    }
+
+    private static String playerSection(GameDataCollector.PlayerData data) {
+        Memo memo = playerMemo;
+        if (memo != null && memo.source() == data) {
+            return memo.text();
+        }
+        StringBuilder out = buffer();
+        PLAYER.write(out, data);
+        String text = out.toString();
+        playerMemo = new Memo(data, text);
+        return text;
+    }
+
+    private static String inventorySection(GameDataCollector.InventoryData data) {
+        Memo memo = inventoryMemo;
+        if (memo != null && memo.source() == data) {
+            return memo.text();
+        }
+        StringBuilder out = buffer();
+        if (data.mainHandItem != null || data.offHandItem != null) {
+            HANDS.write(out, data);
+        }
+        if (!data.inventoryItems.isEmpty()) {
+            ITEMS.write(out, data);
+        }
+        String text = out.toString();
+        inventoryMemo = new Memo(data, text);
+        return text;
+    }
+
+    private static String worldSection(GameDataCollector.WorldData data) {
+        Memo memo = worldMemo;
+        if (memo != null && memo.source() == data) {
+            return memo.text();
+        }
+        StringBuilder out = buffer();
+        WORLD.write(out, data);
+        if (!data.nearbyBlocks.isEmpty()) {
+            NEARBY.write(out, data);
+        }
+        if (!data.nearbyFeatures.isEmpty()) {
+            FEATURES.write(out, data);
+        }
+        String text = out.toString();
+        worldMemo = new Memo(data, text);
+        return text;
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        return out;
+    }
+
+    private static void appendItems(StringBuilder out, GameDataCollector.InventoryData data) {
+        List<String> items = data.inventoryItems;
+        int shown = Math.min(MAX_INVENTORY_ITEMS, items.size());
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(items.get(i));
+        }
+        if (items.size() > shown) {
+            out.append(" (+").append(items.size() - shown).append(')');
+        }
+    }
+
+    private static void appendOptional(StringBuilder out, String key, String value) {
+        if (value != null) {
+            out.append(key).append(value);
+        }
+    }
+
+    /**
+     * 不经过String.format写出一位小数 / Write a value with one decimal without String.format
+     */
+    static void appendOneDecimal(StringBuilder out, float value) {
+        long tenths = Math.round(value * 10.0);
+        if (tenths < 0) {
+            out.append('-');
+            tenths = -tenths;
+        }
+        out.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    /**
+     * 字段写入器 / Field writer
+     */
+    @FunctionalInterface
+    interface FieldWriter<T> {
+        void write(StringBuilder out, T data);
+    }
+
+    /**
+     * 预编译模板：启动时把 {占位符} 解析成字面量和写入器交替的数组 / Precompiled template: {placeholders} are parsed once into alternating literals and writers
+     */
+    static final class Template<T> {
+        private final String[] literals;
+        private final List<FieldWriter<T>> fields;
+
+        private Template(String[] literals, List<FieldWriter<T>> fields) {
+            this.literals = literals;
+            this.fields = fields;
+        }
+
+        static <T> Template<T> compile(String pattern, Map<String, FieldWriter<T>> writers) {
+            List<String> literals = new ArrayList<>();
+            List<FieldWriter<T>> fields = new ArrayList<>();
+            int position = 0;
+            while (true) {
+                int open = pattern.indexOf('{', position);
+                if (open < 0) {
+                    break;
+                }
+                int close = pattern.indexOf('}', open);
+                String name = pattern.substring(open + 1, close);
+                FieldWriter<T> writer = writers.get(name);
+                if (writer == null) {
+                    throw new IllegalArgumentException("Unknown template field: " + name);
+                }
+                literals.add(pattern.substring(position, open));
+                fields.add(writer);
+                position = close + 1;
+            }
+            literals.add(pattern.substring(position));
+            return new Template<>(literals.toArray(new String[0]), List.copyOf(fields));
+        }
+
+        void write(StringBuilder out, T data) {
+            for (int i = 0; i < fields.size(); i++) {
+                out.append(literals[i]);
+                fields.get(i).write(out, data);
+            }
+            out.append(literals[literals.length - 1]);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 上下文规划器 - 按与请求的相关度给每条游戏信息打分，在令牌预算内挑选最有用的信息
+ * Context Planner - Scores every game fact by relevance to the request and packs the most useful ones into a token budget
+ */
+public class ContextPlanner {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern NAME_SEPARATOR = Pattern.compile("[^a-z]+");
+    // 关键词命中和物品名命中的加分 / Score bonus for an intent keyword hit and for a vocabulary hit
+    private static final double KEYWORD_BONUS = 3.0;
+    private static final double VOCABULARY_BONUS = 4.0;
+
+    // 各类信息的意图关键词 / Intent keywords of each kind of fact
+    private static final String[] POSITION_WORDS = {"tp", "teleport", "build", "place", "setblock", "fill", "here", "near", "around",
+            "summon", "spawn", "house", "tower", "wall", "传送", "建", "放", "这里", "附近", "周围", "召唤", "生成"};
+    private static final String[] VITALS_WORDS = {"heal", "health", "hunger", "food", "hungry", "xp", "experience", "level", "effect",
+            "regeneration", "血", "生命", "饥饿", "饿", "经验", "等级", "治疗", "效果"};
+    private static final String[] HAND_WORDS = {"enchant", "hand", "holding", "held", "this", "repair", "rename", "sword", "tool",
+            "weapon", "pickaxe", "附魔", "手", "这个", "修复", "剑", "工具", "武器"};
+    private static final String[] INVENTORY_WORDS = {"inventory", "items", "item", "clear", "give", "stack", "背包", "物品", "清空", "给我"};
+    private static final String[] DIMENSION_WORDS = {"nether", "end", "overworld", "dimension", "portal", "下界", "末地", "主世界", "维度", "传送门"};
+    private static final String[] TIME_WORDS = {"day", "night", "time", "morning", "noon", "midnight", "白天", "夜晚", "晚上", "时间", "早上"};
+    private static final String[] WEATHER_WORDS = {"rain", "weather", "thunder", "storm", "clear", "sunny", "天气", "雨", "雷", "晴"};
+    private static final String[] BIOME_WORDS = {"biome", "forest", "desert", "ocean", "plains", "生物群系", "森林", "沙漠", "海洋"};
+    private static final String[] FEATURE_WORDS = {"water", "lava", "ore", "ores", "mine", "chest", "spawner", "portal", "find", "nearest",
+            "水", "岩浆", "矿", "箱子", "刷怪笼", "传送门", "找", "最近"};
+    private static final String[] BLOCK_WORDS = {"block", "under", "floor", "ground", "below", "replace", "方块", "脚下", "地面", "替换"};
+
+    /**
+     * 信息所属的行，输出时按此顺序分组 / Line a fact belongs to; facts are grouped in this order on output
+     */
+    private enum Line {
+        PLAYER("player"),
+        HAND("hand"),
+        INVENTORY("inv"),
+        WORLD("world"),
+        NEARBY("near"),
+        FEATURES("features");
+
+        private final String prefix;
+
+        Line(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private record Fact(Line line, int order, String text, double score, int cost) {
+    }
+
+    /**
+     * 按预算规划上下文，预算不大于0时不做裁剪 / Plan the context within the budget; a budget of 0 or less keeps everything
+     */
+    public static String plan(GameSnapshot snapshot, String userRequest, int tokenBudget) {
+        String request = userRequest.toLowerCase(Locale.ROOT);
+        Set<String> words = new HashSet<>(List.of(WORD_SEPARATOR.split(request)));
+        List<Fact> facts = collectFacts(snapshot, request, words);
+
+        // 按每令牌得分从高到低装入预算 / Pack by score per token, highest first
+        List<Fact> ranked = new ArrayList<>(facts);
+        ranked.sort(Comparator.comparingDouble((Fact f) -> f.score() / f.cost()).reversed());
+        List<Fact> selected = new ArrayList<>();
+        int used = 0;
+        for (Fact fact : ranked) {
+            if (tokenBudget > 0 && used + fact.cost() > tokenBudget) {
+                continue;
+            }
+            selected.add(fact);
+            used += fact.cost();
+        }
+        selected.sort(Comparator.comparing(Fact::line).thenComparingInt(Fact::order));
+
+        StringBuilder out = new StringBuilder("[game state]\n");
+        Line current = null;
+        for (Fact fact : selected) {
+            if (fact.line() != current) {
+                if (current != null) {
+                    out.append('\n');
+                }
+                current = fact.line();
+                out.append(current.prefix).append(' ');
+            } else {
+                // 列表行用逗号分隔，特征带坐标所以用分号，其余用空格 / List lines are comma separated, features carry coordinates so use semicolons, everything else spaces
+                out.append(current == Line.FEATURES ? ';' : current == Line.INVENTORY || current == Line.NEARBY ? ',' : ' ');
+            }
+            out.append(fact.text());
+        }
+        if (current != null) {
+            out.append('\n');
+        }
+        LOGGER.debug("Planned context: kept {}/{} facts, ~{} of {} tokens", selected.size(), facts.size(), used, tokenBudget);
+        return out.toString();
+    }
+
+    private static List<Fact> collectFacts(GameSnapshot snapshot, String request, Set<String> words) {
+        GameDataCollector.PlayerData player = snapshot.player();
+        GameDataCollector.InventoryData inventory = snapshot.inventory();
+        GameDataCollector.WorldData world = snapshot.world();
+        List<Fact> facts = new ArrayList<>();
+
+        // 玩家 / Player
+        double position = 3.0 + keywordScore(request, words, POSITION_WORDS);
+        add(facts, Line.PLAYER, 0, "pos=" + player.positionX + "," + player.positionY + "," + player.positionZ, position);
+        add(facts, Line.PLAYER, 1, "facing=" + player.facing, position - 1.0);
+        add(facts, Line.PLAYER, 2, "mode=" + player.gameMode, 2.0);
+        double vitals = 0.5 + keywordScore(request, words, VITALS_WORDS);
+        StringBuilder hp = new StringBuilder("hp=");
+        ContextEncoder.appendOneDecimal(hp, player.health);
+        hp.append('/');
+        ContextEncoder.appendOneDecimal(hp, player.maxHealth);
+        add(facts, Line.PLAYER, 3, hp.toString(), vitals);
+        add(facts, Line.PLAYER, 4, "food=" + player.foodLevel + "/20", vitals);
+        add(facts, Line.PLAYER, 5, "xp=" + player.experienceLevel, vitals);
+        add(facts, Line.PLAYER, 6, "name=" + player.playerName, 0.3);
+
+        // 手持物品 / Held items
+        double hand = keywordScore(request, words, HAND_WORDS);
+        if (inventory.mainHandItem != null) {
+            add(facts, Line.HAND, 0, "main=" + inventory.mainHandItem, 2.0 + hand + vocabularyScore(words, inventory.mainHandItem));
+        }
+        if (inventory.offHandItem != null) {
+            add(facts, Line.HAND, 1, "off=" + inventory.offHandItem, 0.8 + hand + vocabularyScore(words, inventory.offHandItem));
+        }
+
+        // 物品栏：每个物品单独打分 / Inventory: every item is scored on its own
+        double inventoryBase = 0.2 + keywordScore(request, words, INVENTORY_WORDS);
+        for (int i = 0; i < inventory.inventoryItems.size(); i++) {
+            String item = inventory.inventoryItems.get(i);
+            add(facts, Line.INVENTORY, i, item, inventoryBase + vocabularyScore(words, item) - i * 0.01);
+        }
+
+        // 世界 / World
+        add(facts, Line.WORLD, 0, "dim=" + world.dimensionName, 1.5 + keywordScore(request, words, DIMENSION_WORDS));
+        add(facts, Line.WORLD, 1, "time=" + (world.isDay ? "day" : "night"), 0.8 + keywordScore(request, words, TIME_WORDS));
+        if (world.isRaining || world.isThundering) {
+            add(facts, Line.WORLD, 2, "weather=" + (world.isThundering ? "thunder" : "rain"), 0.8 + keywordScore(request, words, WEATHER_WORDS));
+        }
+        if (world.biomeName != null) {
+            add(facts, Line.WORLD, 3, "biome=" + world.biomeName,
+                    0.4 + keywordScore(request, words, BIOME_WORDS) + vocabularyScore(words, world.biomeName));
+        }
+        if (world.blockBelow != null) {
+            add(facts, Line.WORLD, 4, "below=" + world.blockBelow,
+                    0.8 + keywordScore(request, words, BLOCK_WORDS) + vocabularyScore(words, world.blockBelow));
+        }
+
+        // 周围环境：建造类请求更需要 / Surroundings: mostly useful for building requests
+        double surroundings = keywordScore(request, words, POSITION_WORDS) + keywordScore(request, words, BLOCK_WORDS);
+        for (int i = 0; i < world.nearbyBlocks.size(); i++) {
+            String block = world.nearbyBlocks.get(i);
+            add(facts, Line.NEARBY, i, block, 0.1 + surroundings / 2 + vocabularyScore(words, block) - i * 0.01);
+        }
+        double features = keywordScore(request, words, FEATURE_WORDS);
+        for (int i = 0; i < world.nearbyFeatures.size(); i++) {
+            String feature = world.nearbyFeatures.get(i);
+            add(facts, Line.FEATURES, i, feature, 0.4 + features + vocabularyScore(words, feature) - i * 0.01);
+        }
+        return facts;
+    }
+
+    private static void add(List<Fact> facts, Line line, int order, String text, double score) {
+        facts.add(new Fact(line, order, text, score, TokenEstimator.estimateTokens(text) + 1));
+    }
+
+    /**
+     * 意图关键词命中：英文按整词匹配，中文按子串匹配 / Intent keyword hit: whole words for English, substrings for Chinese
+     */
+    private static double keywordScore(String request, Set<String> words, String[] keywords) {
+        for (String keyword : keywords) {
+            boolean ascii = keyword.charAt(0) < 0x80;
+            if (ascii ? words.contains(keyword) : request.contains(keyword)) {
+                return KEYWORD_BONUS;
+            }
+        }
+        return 0.0;
+    }
+
+    /**
+     * 请求中出现物品/方块/生物群系名称里的词 / The request mentions a word from an item, block or biome name
+     */
+    private static double vocabularyScore(Set<String> words, String registryName) {
+        int colon = registryName.indexOf(':');
+        for (String part : NAME_SEPARATOR.split(registryName.substring(colon + 1))) {
+            if (part.length() > 2 && (words.contains(part) || words.contains(part + "s"))) {
+                return VOCABULARY_BONUS;
+            }
+        }
+        return 0.0;
+    }
+}
@@ -0,0 +1,159 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.server.IntegratedServer;
+import net.minecraft.commands.CommandResultCallback;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.execution.ExecutionContext;
+import net.minecraft.commands.execution.TraceCallbacks;
+import net.minecraft.commands.functions.CommandFunction;
+import net.minecraft.commands.functions.FunctionInstantiationException;
+import net.minecraft.commands.functions.InstantiatedFunction;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.storage.LevelResource;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据包函数执行器 - 单人游戏中把大批指令编译成一个函数，在服务器线程上一次执行完
+ * Datapack Function Runner - In singleplayer, compiles a large command batch into one function and runs it in a single go on the server thread
+ *
+ * <p>原版无法只重载一个数据包，所以函数直接在内存中用同样的行编译并执行；同时异步写入世界的数据包目录，
+ * 之后可以用 /function aicommand:generated/latest 再次运行。
+ * Vanilla cannot reload a single datapack, so the function is compiled in memory from the same lines and run directly; it is also written
+ * asynchronously into the world's datapack folder, where /function aicommand:generated/latest runs it again after the next reload.</p>
+ */
+public class DatapackFunctionRunner {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    public static final String PACK_NAME = "aicommand_generated";
+    public static final ResourceLocation FUNCTION_ID = ResourceLocation.fromNamespaceAndPath(AICommand.MODID, "generated/latest");
+    // 1.21.5 的数据包格式 / Datapack format of 1.21.5
+    private static final int PACK_FORMAT = 71;
+    // 后台写入可能乱序完成，只有最新一批能落盘 / Background writes may finish out of order, so only the newest batch reaches the disk
+    private static final AtomicLong WRITE_SEQUENCE = new AtomicLong();
+    private static long writtenSequence;
+
+    /**
+     * 执行结果：commands 为成功执行的指令数，failed 为执行时报错的指令数；error 为 null 表示函数已执行
+     * Run outcome: commands succeeded and failed ones reported an error while running; a null error means the function ran
+     */
+    public record Outcome(int commands, int failed, String error) {
+    }
+
+    /**
+     * 以玩家的权限运行一批指令，结果在服务器线程上完成 / Run a command batch with the player's permissions; the future completes on the server thread
+     */
+    public static CompletableFuture<Outcome> run(List<String> commands, UUID playerId) {
+        IntegratedServer server = Minecraft.getInstance().getSingleplayerServer();
+        if (server == null) {
+            return CompletableFuture.completedFuture(new Outcome(0, 0, "No integrated server"));
+        }
+        // 函数中的指令不能带斜杠 / Function lines must not start with a slash
+        List<String> lines = commands.stream().map(command -> command.startsWith("/") ? command.substring(1) : command).toList();
+
+        Path packDir = server.getWorldPath(LevelResource.DATAPACK_DIR).resolve(PACK_NAME);
+        long sequence = WRITE_SEQUENCE.incrementAndGet();
+        BackgroundExecutor.executor().execute(() -> write(packDir, lines, sequence));
+
+        CompletableFuture<Outcome> result = new CompletableFuture<>();
+        server.execute(() -> {
+            ServerPlayer player = server.getPlayerList().getPlayer(playerId);
+            if (player == null) {
+                result.complete(new Outcome(0, 0, "Player not found"));
+                return;
+            }
+            CommandSourceStack source = player.createCommandSourceStack().withSuppressedOutput();
+            try {
+                long start = System.nanoTime();
+                CommandFunction<CommandSourceStack> function = CommandFunction.fromLines(FUNCTION_ID, server.getCommands().getDispatcher(), source, lines);
+                InstantiatedFunction<CommandSourceStack> instantiated = function.instantiate(null, server.getCommands().getDispatcher());
+                // 与 ServerFunctionManager.execute 相同，但挂上计数器以得知实际执行了多少条 / Same as ServerFunctionManager.execute, with a counter attached to learn how many commands actually ran
+                CommandCounter counter = new CommandCounter();
+                Commands.executeCommandInContext(source, context -> {
+                    context.tracer(counter);
+                    ExecutionContext.queueInitialFunctionCall(context, instantiated, source, CommandResultCallback.EMPTY);
+                });
+                int succeeded = counter.commands - counter.errors;
+                LOGGER.info("Ran {}/{} commands as function {} in {} µs, {} failed", counter.commands, lines.size(), FUNCTION_ID,
+                        (System.nanoTime() - start) / 1000, counter.errors);
+                result.complete(new Outcome(succeeded, counter.errors, null));
+            } catch (FunctionInstantiationException e) {
+                LOGGER.warn("Failed to instantiate generated function: {}", e.messageComponent().getString());
+                result.complete(new Outcome(0, 0, e.messageComponent().getString()));
+            } catch (RuntimeException e) {
+                // 任何一行解析失败整个函数都会被拒绝 / The whole function is rejected when any line fails to parse
+                LOGGER.warn("Failed to run generated function", e);
+                result.complete(new Outcome(0, 0, e.getMessage()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 统计函数执行时实际运行和报错的指令数，指令配额用完时后面的行不会运行 / Counts the commands that actually ran and the ones that failed; lines past the command quota never run
+     */
+    private static final class CommandCounter implements TraceCallbacks {
+        int commands;
+        int errors;
+
+        @Override
+        public void onCommand(int depth, String command) {
+            commands++;
+        }
+
+        @Override
+        public void onReturn(int depth, String command, int result) {
+        }
+
+        @Override
+        public void onError(String message) {
+            errors++;
+        }
+
+        @Override
+        public void onCall(int depth, ResourceLocation function, int commands) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 写入数据包和函数文件，先写临时文件再原子替换；比已写入的批次旧的直接跳过
+     * Write the datapack and function file, through a temporary file and an atomic move; a batch older than the one already written is skipped
+     */
+    private static synchronized void write(Path packDir, List<String> lines, long sequence) {
+        if (sequence < writtenSequence) {
+            return;
+        }
+        writtenSequence = sequence;
+        try {
+            Path meta = packDir.resolve("pack.mcmeta");
+            if (!Files.exists(meta)) {
+                Files.createDirectories(packDir);
+                Files.writeString(meta, "{\"pack\":{\"pack_format\":" + PACK_FORMAT + ",\"description\":\"Commands generated by AI Command\"}}\n",
+                        StandardCharsets.UTF_8);
+            }
+            Path file = packDir.resolve("data").resolve(FUNCTION_ID.getNamespace()).resolve("function").resolve(FUNCTION_ID.getPath() + ".mcfunction");
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write generated function to {}", packDir, e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+/**
+ * 游戏上下文格式化器 - 把快照格式化为发送给AI的上下文，不依赖客户端类，服务器也可以使用
+ * Game Context Formatter - Formats a snapshot as the context sent to the AI; it has no client dependencies, so the server can use it too
+ */
+public class GameContextFormatter {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    
+    // 各部分最近一次的格式化结果，数据对象未变时直接复用 / Last formatted text of each section, reused while the data object is unchanged
+    private static volatile SectionText playerText;
+    private static volatile SectionText inventoryText;
+    private static volatile SectionText worldText;
+    
+    private record SectionText(Object source, String text) {
+    }
+    
+    /**
+     * 根据快照和用户请求生成游戏上下文，可在任意线程调用；紧凑格式下按令牌预算只保留相关信息
+     * Generate game context for a request, safe on any thread; the compact format keeps only the relevant facts within the token budget
+     *
+     * @param userRequest 用户请求，为null时不做规划 / The user request, or null to skip planning
+     */
+    public static String format(GameSnapshot snapshot, String userRequest) {
+        try {
+            if (Config.contextFormat == Config.ContextFormat.COMPACT) {
+                String compact = userRequest != null && Config.contextTokenBudget > 0
+                    ? ContextPlanner.plan(snapshot, userRequest, Config.contextTokenBudget)
+                    : ContextEncoder.encode(snapshot);
+                if (LOGGER.isDebugEnabled()) {
+                    // 报告相对详细格式节省的字节和令牌 / Report the bytes and tokens saved compared to the verbose format
+                    String verbose = verboseContext(snapshot);
+                    int bytesSaved = TokenEstimator.utf8Length(verbose) - TokenEstimator.utf8Length(compact);
+                    int tokensSaved = TokenEstimator.estimateTokens(verbose) - TokenEstimator.estimateTokens(compact);
+                    LOGGER.debug("Compact context: {} bytes (~{} tokens), saved {} bytes (~{} tokens) against verbose",
+                        TokenEstimator.utf8Length(compact), TokenEstimator.estimateTokens(compact), bytesSaved, tokensSaved);
+                }
+                return compact;
+            }
+            return verboseContext(snapshot);
+            
+        } catch (Exception e) {
+            LOGGER.error("Error formatting game data", e);
+            return "无法获取游戏数据 / Unable to collect game data: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * 详细的中英双语格式 / Verbose bilingual format
+     */
+    private static String verboseContext(GameSnapshot snapshot) {
+        StringBuilder context = new StringBuilder();
+        context.append("=== 当前游戏状态 / Current Game State ===\n");
+        
+        // 未变化的部分直接复用上次的文本 / Sections that did not change reuse their previous text
+        context.append(playerSection(snapshot.player()));
+        context.append(inventorySection(snapshot.inventory()));
+        context.append(worldSection(snapshot.world()));
+        
+        context.append("\n请根据以上游戏状态信息生成合适的Minecraft命令。\n");
+        context.append("Please generate appropriate Minecraft commands based on the above game state information.\n");
+        
+        return context.toString();
+    }
+    
+    private static String playerSection(GameDataCollector.PlayerData playerData) {
+        SectionText cached = playerText;
+        if (cached != null && cached.source() == playerData) {
+            return cached.text();
+        }
+        
+        // 玩家信息 / Player information
+        StringBuilder context = new StringBuilder();
+        context.append("玩家信息 / Player Info:\n");
+        context.append(String.format("- 玩家: %s\n", playerData.playerName));
+        context.append(String.format("- 生命值: %.1f/%.1f\n", playerData.health, playerData.maxHealth));
+        context.append(String.format("- 饥饿值: %d/20\n", playerData.foodLevel));
+        context.append(String.format("- 经验等级: %d\n", playerData.experienceLevel));
+        context.append(String.format("- 游戏模式: %s\n", playerData.gameMode));
+        context.append(String.format("- 位置: %d, %d, %d\n", playerData.positionX, playerData.positionY, playerData.positionZ));
+        context.append(String.format("- 朝向: %s\n", playerData.facing));
+        
+        String text = context.toString();
+        playerText = new SectionText(playerData, text);
+        return text;
+    }
+    
+    private static String inventorySection(GameDataCollector.InventoryData inventoryData) {
+        SectionText cached = inventoryText;
+        if (cached != null && cached.source() == inventoryData) {
+            return cached.text();
+        }
+        
+        // 物品栏信息 / Inventory information
+        StringBuilder context = new StringBuilder();
+        context.append("\n物品栏信息 / Inventory Info:\n");
+        if (inventoryData.mainHandItem != null) {
+            context.append(String.format("- 主手: %s\n", inventoryData.mainHandItem));
+        }
+        if (inventoryData.offHandItem != null) {
+            context.append(String.format("- 副手: %s\n", inventoryData.offHandItem));
+        }
+        if (!inventoryData.inventoryItems.isEmpty()) {
+            context.append("- 物品栏物品: ");
+            context.append(String.join(", ", inventoryData.inventoryItems.subList(0, Math.min(10, inventoryData.inventoryItems.size()))));
+            if (inventoryData.inventoryItems.size() > 10) {
+                context.append(String.format(" (还有%d个物品)", inventoryData.inventoryItems.size() - 10));
+            }
+            context.append("\n");
+        }
+        
+        String text = context.toString();
+        inventoryText = new SectionText(inventoryData, text);
+        return text;
+    }
+    
+    private static String worldSection(GameDataCollector.WorldData worldData) {
+        SectionText cached = worldText;
+        if (cached != null && cached.source() == worldData) {
+            return cached.text();
+        }
+        
+        // 世界信息 / World information
+        StringBuilder context = new StringBuilder();
+        context.append("\n世界信息 / World Info:\n");
+        context.append(String.format("- 维度: %s\n", worldData.dimensionName));
+        context.append(String.format("- 时间: %s\n", worldData.isDay ? "白天" : "夜晚"));
+        if (worldData.isRaining) {
+            context.append("- 天气: 下雨\n");
+        }
+        if (worldData.isThundering) {
+            context.append("- 天气: 雷暴\n");
+        }
+        if (worldData.biomeName != null) {
+            context.append(String.format("- 生物群系: %s\n", worldData.biomeName));
+        }
+        if (worldData.blockBelow != null) {
+            context.append(String.format("- 脚下方块: %s\n", worldData.blockBelow));
+        }
+        if (!worldData.nearbyBlocks.isEmpty()) {
+            context.append("- 周围方块: ").append(String.join(", ", worldData.nearbyBlocks)).append("\n");
+        }
+        if (!worldData.nearbyFeatures.isEmpty()) {
+            context.append("- 周围特征: ").append(String.join(", ", worldData.nearbyFeatures)).append("\n");
+        }
+        
+        String text = context.toString();
+        worldText = new SectionText(worldData, text);
+        return text;
+    }
+}
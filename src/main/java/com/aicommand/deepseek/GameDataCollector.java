@@ -4,6 +4,7 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.player.LocalPlayer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.biome.Biome;
@@ -15,7 +16,9 @@ import com.mojang.logging.LogUtils;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 游戏数据收集器 - 收集当前游戏状态信息用于AI分析
@@ -24,6 +27,10 @@ import java.util.List;
 public class GameDataCollector {
     private static final Logger LOGGER = LogUtils.getLogger();
     
+    // 注册名在一次游戏中不会变化，只在主线程上访问 / Registry names never change during a session; only accessed on the main thread
+    private static final Map<Item, String> ITEM_NAMES = new IdentityHashMap<>();
+    private static final Map<Block, String> BLOCK_NAMES = new IdentityHashMap<>();
+    
     /**
      * 收集玩家相关数据 / Collect player-related data
      */
@@ -92,7 +99,7 @@ public class GameDataCollector {
     }
     
     /**
-     * 收集世界环境数据 / Collect world environment data
+     * 收集世界环境数据，不含周围方块；周围方块由 {@link GameStateTracker} 在取快照时扫描 / Collect world environment data without the surrounding blocks, which {@link GameStateTracker} scans when a snapshot is taken
      */
     public static WorldData collectWorldData() {
         Minecraft mc = Minecraft.getInstance();
@@ -125,19 +132,6 @@ public class GameDataCollector {
         BlockState blockBelow = level.getBlockState(belowPos);
         data.blockBelow = getBlockInfo(blockBelow);
         
-        // 玩家周围的方块 / Blocks around player
-        for (int x = -2; x <= 2; x++) {
-            for (int z = -2; z <= 2; z++) {
-                if (x == 0 && z == 0) continue; // 跳过玩家位置 / Skip player position
-                
-                BlockPos nearbyPos = playerPos.offset(x, 0, z);
-                BlockState nearbyBlock = level.getBlockState(nearbyPos);
-                if (!nearbyBlock.isAir()) {
-                    data.nearbyBlocks.add(getBlockInfo(nearbyBlock));
-                }
-            }
-        }
-        
         return data;
     }
     
@@ -145,8 +139,10 @@ public class GameDataCollector {
      * 获取物品信息 / Get item information
      */
     private static String getItemInfo(ItemStack stack) {
-        ResourceLocation itemLocation = ForgeRegistries.ITEMS.getKey(stack.getItem());
-        String itemName = itemLocation != null ? itemLocation.toString() : "unknown";
+        String itemName = ITEM_NAMES.computeIfAbsent(stack.getItem(), item -> {
+            ResourceLocation itemLocation = ForgeRegistries.ITEMS.getKey(item);
+            return itemLocation != null ? itemLocation.toString() : "unknown";
+        });
         
         if (stack.getCount() > 1) {
             return itemName + " x" + stack.getCount();
@@ -158,76 +154,24 @@ public class GameDataCollector {
      * 获取方块信息 / Get block information
      */
     private static String getBlockInfo(BlockState blockState) {
-        Block block = blockState.getBlock();
-        ResourceLocation blockLocation = ForgeRegistries.BLOCKS.getKey(block);
-        return blockLocation != null ? blockLocation.toString() : "unknown";
+        return blockName(blockState.getBlock());
+    }
+    
+    /**
+     * 方块注册名，只在主线程调用 / Registry name of a block; main thread only
+     */
+    static String blockName(Block block) {
+        return BLOCK_NAMES.computeIfAbsent(block, key -> {
+            ResourceLocation blockLocation = ForgeRegistries.BLOCKS.getKey(key);
+            return blockLocation != null ? blockLocation.toString() : "unknown";
+        });
     }
     
     /**
-     * 生成完整的游戏上下文信息 / Generate complete game context information
+     * 采集并生成完整的游戏上下文信息，必须在客户端主线程调用 / Capture and generate complete game context information; must be called on the client thread
      */
     public static String generateGameContext() {
-        try {
-            PlayerData playerData = collectPlayerData();
-            InventoryData inventoryData = collectInventoryData();
-            WorldData worldData = collectWorldData();
-            
-            StringBuilder context = new StringBuilder();
-            context.append("=== 当前游戏状态 / Current Game State ===\n");
-            
-            // 玩家信息 / Player information
-            context.append("玩家信息 / Player Info:\n");
-            context.append(String.format("- 玩家: %s\n", playerData.playerName));
-            context.append(String.format("- 生命值: %.1f/%.1f\n", playerData.health, playerData.maxHealth));
-            context.append(String.format("- 饥饿值: %d/20\n", playerData.foodLevel));
-            context.append(String.format("- 经验等级: %d\n", playerData.experienceLevel));
-            context.append(String.format("- 游戏模式: %s\n", playerData.gameMode));
-            context.append(String.format("- 位置: %d, %d, %d\n", playerData.positionX, playerData.positionY, playerData.positionZ));
-            context.append(String.format("- 朝向: %s\n", playerData.facing));
-            
-            // 物品栏信息 / Inventory information
-            context.append("\n物品栏信息 / Inventory Info:\n");
-            if (inventoryData.mainHandItem != null) {
-                context.append(String.format("- 主手: %s\n", inventoryData.mainHandItem));
-            }
-            if (inventoryData.offHandItem != null) {
-                context.append(String.format("- 副手: %s\n", inventoryData.offHandItem));
-            }
-            if (!inventoryData.inventoryItems.isEmpty()) {
-                context.append("- 物品栏物品: ");
-                context.append(String.join(", ", inventoryData.inventoryItems.subList(0, Math.min(10, inventoryData.inventoryItems.size()))));
-                if (inventoryData.inventoryItems.size() > 10) {
-                    context.append(String.format(" (还有%d个物品)", inventoryData.inventoryItems.size() - 10));
-                }
-                context.append("\n");
-            }
-            
-            // 世界信息 / World information
-            context.append("\n世界信息 / World Info:\n");
-            context.append(String.format("- 维度: %s\n", worldData.dimensionName));
-            context.append(String.format("- 时间: %s\n", worldData.isDay ? "白天" : "夜晚"));
-            if (worldData.isRaining) {
-                context.append("- 天气: 下雨\n");
-            }
-            if (worldData.isThundering) {
-                context.append("- 天气: 雷暴\n");
-            }
-            if (worldData.biomeName != null) {
-                context.append(String.format("- 生物群系: %s\n", worldData.biomeName));
-            }
-            if (worldData.blockBelow != null) {
-                context.append(String.format("- 脚下方块: %s\n", worldData.blockBelow));
-            }
-            
-            context.append("\n请根据以上游戏状态信息生成合适的Minecraft命令。\n");
-            context.append("Please generate appropriate Minecraft commands based on the above game state information.\n");
-            
-            return context.toString();
-            
-        } catch (Exception e) {
-            LOGGER.error("Error collecting game data", e);
-            return "无法获取游戏数据 / Unable to collect game data: " + e.getMessage();
-        }
+        return GameContextFormatter.format(GameSnapshot.capture(), null);
     }
     
     // 数据类 / Data classes
@@ -259,5 +203,6 @@ public class GameDataCollector {
         public String biomeName = null;
         public String blockBelow = null;
         public List<String> nearbyBlocks = new ArrayList<>();
+        public List<String> nearbyFeatures = new ArrayList<>();
     }
 }
\ No newline at end of file
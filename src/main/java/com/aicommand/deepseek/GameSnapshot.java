@@ -0,0 +1,48 @@
+package com.aicommand.deepseek;
+
+/**
+ * 游戏状态快照 - 在客户端主线程上一次性采集，之后只读，可安全地在后台线程格式化
+ * Game Snapshot - Captured once on the client thread and read-only afterwards, so it can be formatted safely off-thread
+ *
+ * @param player       玩家数据 / Player data
+ * @param inventory    物品栏数据 / Inventory data
+ * @param world        世界数据 / World data
+ * @param captureNanos 采集耗时（纳秒） / Time spent capturing, in nanoseconds
+ */
+public record GameSnapshot(GameDataCollector.PlayerData player,
+                           GameDataCollector.InventoryData inventory,
+                           GameDataCollector.WorldData world,
+                           long captureNanos) {
+
+    /**
+     * 没有游戏状态时使用的空快照 / Empty snapshot used when there is no game state
+     */
+    public static final GameSnapshot EMPTY = new GameSnapshot(
+            new GameDataCollector.PlayerData(), new GameDataCollector.InventoryData(), new GameDataCollector.WorldData(), 0);
+
+    /**
+     * 采集当前游戏状态，必须在客户端主线程调用 / Capture the current game state; must be called on the client thread
+     *
+     * <p>由 {@link GameStateTracker} 增量维护，采集只需检查变化并引用已发布的数据。
+     * Maintained incrementally by {@link GameStateTracker}; capturing only checks for changes and references the published data.</p>
+     */
+    public static GameSnapshot capture() {
+        PipelineEvents.Capture event = new PipelineEvents.Capture();
+        event.begin();
+        GameSnapshot snapshot = GameStateTracker.snapshot();
+        snapshot.commit(event, "client");
+        return snapshot;
+    }
+
+    /**
+     * 提交采集事件，未录制时不填写字段 / Commit the capture event; fields are left unset when nothing is recording
+     */
+    void commit(PipelineEvents.Capture event, String side) {
+        if (event.shouldCommit()) {
+            event.side = side;
+            event.inventoryItems = inventory.inventoryItems.size();
+            event.nearbyBlocks = world.nearbyBlocks.size();
+            event.commit();
+        }
+    }
+}
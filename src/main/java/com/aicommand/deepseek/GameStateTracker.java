@@ -0,0 +1,229 @@
+package com.aicommand.deepseek;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.core.Direction;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.GameType;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 游戏状态追踪器 - 随客户端事件增量更新游戏数据，只在数据变化时重建对应部分
+ * Game State Tracker - Keeps the game data up to date from client events and only rebuilds the sections that changed
+ *
+ * <p>发布出去的数据对象之后不再修改，快照只需引用它们，格式化结果也可按对象复用。每tick只检查廉价的字段，周围方块的扫描只在取快照时进行。
+ * Published data objects are never modified afterwards, so snapshots just reference them and formatted text can be reused per object.
+ * Only the cheap fields are checked every tick; the surroundings are scanned only when a snapshot is taken.</p>
+ */
+@Mod.EventBusSubscriber(modid = AICommand.MODID, value = Dist.CLIENT)
+public class GameStateTracker {
+    // 当前发布的数据，只在主线程上替换 / Currently published data, only replaced on the main thread
+    private static GameDataCollector.PlayerData player = new GameDataCollector.PlayerData();
+    private static GameDataCollector.InventoryData inventory = freeze(new GameDataCollector.InventoryData());
+    private static GameDataCollector.WorldData world = freeze(new GameDataCollector.WorldData());
+
+    // 脏检查用的廉价标记 / Cheap stamps used for dirty checks
+    private static LocalPlayer lastPlayer;
+    private static Level lastLevel;
+    private static long lastBlockPos;
+    private static float lastHealth;
+    private static float lastMaxHealth;
+    private static int lastFoodLevel;
+    private static int lastExperienceLevel;
+    private static GameType lastGameMode;
+    private static Direction lastFacing;
+    private static int lastInventoryChanges;
+    private static ItemStack lastMainHand;
+    private static ItemStack lastOffHand;
+    private static int lastMainHandCount;
+    private static long lastWorldBlockPos;
+    private static boolean lastIsDay;
+    private static boolean lastRaining;
+    private static boolean lastThundering;
+
+    @SubscribeEvent
+    public static void onPlayerTick(TickEvent.PlayerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && event.side == LogicalSide.CLIENT && event.player == Minecraft.getInstance().player) {
+            refresh();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onPlayerClone(ClientPlayerNetworkEvent.Clone event) {
+        // 重生或切换维度会创建新的玩家对象 / Respawning or changing dimension creates a new player object
+        invalidate();
+    }
+
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        invalidate();
+        player = new GameDataCollector.PlayerData();
+        inventory = freeze(new GameDataCollector.InventoryData());
+        world = freeze(new GameDataCollector.WorldData());
+    }
+
+    /**
+     * 追踪的数据的当前快照，必须在客户端主线程调用 / Snapshot of the tracked data; must be called on the client thread
+     */
+    public static GameSnapshot snapshot() {
+        long start = System.nanoTime();
+        refresh();
+        refreshSurroundings();
+        return new GameSnapshot(player, inventory, world, System.nanoTime() - start);
+    }
+
+    /**
+     * 扫描周围方块，结果变化时发布新的世界对象；扫描按区块段缓存 / Scan the surroundings and publish a new world object when they changed; the scan is cached per chunk section
+     */
+    private static void refreshSurroundings() {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null || mc.level == null) {
+            return;
+        }
+        SurroundingsScanner.Surroundings surroundings = SurroundingsScanner.scan(mc.level, mc.player.blockPosition(), Config.surroundingsRadius);
+        if (surroundings.histogram().equals(world.nearbyBlocks) && surroundings.features().equals(world.nearbyFeatures)) {
+            return;
+        }
+        GameDataCollector.WorldData updated = copy(world);
+        updated.nearbyBlocks = surroundings.histogram();
+        updated.nearbyFeatures = surroundings.features();
+        world = freeze(updated);
+    }
+
+    /**
+     * 检查各部分是否变化，只重建变化的部分 / Check every section for changes and rebuild only the ones that changed
+     */
+    public static void refresh() {
+        Minecraft mc = Minecraft.getInstance();
+        LocalPlayer localPlayer = mc.player;
+        Level level = mc.level;
+        if (localPlayer == null || level == null || mc.gameMode == null) {
+            return;
+        }
+        if (localPlayer != lastPlayer || level != lastLevel) {
+            invalidate();
+            lastPlayer = localPlayer;
+            lastLevel = level;
+        }
+        refreshPlayer(mc, localPlayer);
+        refreshInventory(localPlayer);
+        refreshWorld(level, localPlayer);
+    }
+
+    private static void refreshPlayer(Minecraft mc, LocalPlayer localPlayer) {
+        long blockPos = localPlayer.blockPosition().asLong();
+        GameType gameMode = mc.gameMode.getPlayerMode();
+        Direction facing = localPlayer.getDirection();
+        if (blockPos == lastBlockPos && localPlayer.getHealth() == lastHealth && localPlayer.getMaxHealth() == lastMaxHealth
+                && localPlayer.getFoodData().getFoodLevel() == lastFoodLevel && localPlayer.experienceLevel == lastExperienceLevel
+                && gameMode == lastGameMode && facing == lastFacing) {
+            return;
+        }
+        lastBlockPos = blockPos;
+        lastHealth = localPlayer.getHealth();
+        lastMaxHealth = localPlayer.getMaxHealth();
+        lastFoodLevel = localPlayer.getFoodData().getFoodLevel();
+        lastExperienceLevel = localPlayer.experienceLevel;
+        lastGameMode = gameMode;
+        lastFacing = facing;
+        player = GameDataCollector.collectPlayerData();
+    }
+
+    private static void refreshInventory(LocalPlayer localPlayer) {
+        // 物品栏每次变化都会增加计数；手持物品的数量可能在本地直接改变 / The inventory counter grows on every change; the held stack's count may change locally
+        int changes = localPlayer.getInventory().getTimesChanged();
+        ItemStack mainHand = localPlayer.getMainHandItem();
+        ItemStack offHand = localPlayer.getOffhandItem();
+        if (changes == lastInventoryChanges && mainHand == lastMainHand && offHand == lastOffHand && mainHand.getCount() == lastMainHandCount) {
+            return;
+        }
+        lastInventoryChanges = changes;
+        lastMainHand = mainHand;
+        lastOffHand = offHand;
+        lastMainHandCount = mainHand.getCount();
+        GameDataCollector.InventoryData updated = GameDataCollector.collectInventoryData();
+        if (!sameInventory(updated, inventory)) {
+            inventory = freeze(updated);
+        }
+    }
+
+    private static void refreshWorld(Level level, LocalPlayer localPlayer) {
+        long blockPos = localPlayer.blockPosition().asLong();
+        boolean isDay = (level.getDayTime() % 24000) < 12000;
+        if (blockPos == lastWorldBlockPos && isDay == lastIsDay && level.isRaining() == lastRaining && level.isThundering() == lastThundering) {
+            return;
+        }
+        lastWorldBlockPos = blockPos;
+        lastIsDay = isDay;
+        lastRaining = level.isRaining();
+        lastThundering = level.isThundering();
+        // 移动后生物群系和脚下方块常常不变，此时保留原对象 / After moving, biome and block below often stay the same; keep the old object then
+        GameDataCollector.WorldData updated = GameDataCollector.collectWorldData();
+        // 周围方块沿用上次扫描的结果 / The surroundings carry over from the last scan
+        updated.nearbyBlocks = world.nearbyBlocks;
+        updated.nearbyFeatures = world.nearbyFeatures;
+        if (!sameWorld(updated, world)) {
+            world = freeze(updated);
+        }
+    }
+
+    private static void invalidate() {
+        lastPlayer = null;
+        lastLevel = null;
+        lastBlockPos = Long.MIN_VALUE;
+        lastGameMode = null;
+        lastInventoryChanges = -1;
+        lastMainHand = null;
+        lastOffHand = null;
+        lastWorldBlockPos = Long.MIN_VALUE;
+    }
+
+    private static boolean sameInventory(GameDataCollector.InventoryData a, GameDataCollector.InventoryData b) {
+        return Objects.equals(a.mainHandItem, b.mainHandItem) && Objects.equals(a.offHandItem, b.offHandItem)
+                && a.inventoryItems.equals(b.inventoryItems);
+    }
+
+    /**
+     * 比较上下文中用到的世界字段，dayTime只随其他变化一起刷新 / Compare the world fields used by the context; dayTime is only refreshed along with other changes
+     */
+    private static boolean sameWorld(GameDataCollector.WorldData a, GameDataCollector.WorldData b) {
+        return a.dimensionName.equals(b.dimensionName) && a.isDay == b.isDay && a.isRaining == b.isRaining
+                && a.isThundering == b.isThundering && Objects.equals(a.biomeName, b.biomeName)
+                && Objects.equals(a.blockBelow, b.blockBelow) && a.nearbyBlocks.equals(b.nearbyBlocks)
+                && a.nearbyFeatures.equals(b.nearbyFeatures);
+    }
+
+    private static GameDataCollector.WorldData copy(GameDataCollector.WorldData data) {
+        GameDataCollector.WorldData copy = new GameDataCollector.WorldData();
+        copy.dimensionName = data.dimensionName;
+        copy.dayTime = data.dayTime;
+        copy.isDay = data.isDay;
+        copy.isRaining = data.isRaining;
+        copy.isThundering = data.isThundering;
+        copy.biomeName = data.biomeName;
+        copy.blockBelow = data.blockBelow;
+        copy.nearbyBlocks = data.nearbyBlocks;
+        copy.nearbyFeatures = data.nearbyFeatures;
+        return copy;
+    }
+
+    private static GameDataCollector.InventoryData freeze(GameDataCollector.InventoryData data) {
+        data.inventoryItems = List.copyOf(data.inventoryItems);
+        return data;
+    }
+
+    private static GameDataCollector.WorldData freeze(GameDataCollector.WorldData data) {
+        data.nearbyBlocks = List.copyOf(data.nearbyBlocks);
+        data.nearbyFeatures = List.copyOf(data.nearbyFeatures);
+        return data;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aicommand.deepseek;
+
+/**
+ * 一次指令生成的结果 / Result of one command generation
+ *
+ * @param text     生成的指令文本或以"Error:"开头的错误 / Generated command text, or an error starting with "Error:"
+ * @param provider 给出答案的服务商 / Provider that produced the answer
+ * @param cached   是否来自响应缓存 / Whether the answer came from the response cache
+ * @param usage    服务商报告的令牌用量 / Token usage reported by the provider
+ */
+public record GenerationResult(String text, Config.AIProvider provider, boolean cached, TokenUsage usage) {
+
+    public boolean isError() {
+        return text.startsWith("Error:");
+    }
+}
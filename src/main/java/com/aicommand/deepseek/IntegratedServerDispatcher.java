@@ -0,0 +1,36 @@
+package com.aicommand.deepseek;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.server.IntegratedServer;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 集成服务器直接分发 - 单人游戏中把整批指令作为一个任务提交到服务器线程，直接交给服务器的指令系统执行
+ * Integrated Server Dispatcher - In singleplayer, submits the whole batch as one task on the server thread and runs it through the server's command system
+ *
+ * <p>不经过网络包，也不需要客户端逐条发送，并能拿到每条指令的准确结果。
+ * No network packets and no per-command sending from the client, and every command's exact result comes back.</p>
+ */
+public class IntegratedServerDispatcher {
+
+    /**
+     * 是否在集成服务器上，只有单人游戏或局域网主机可用 / Whether an integrated server is running; only singleplayer or a LAN host qualifies
+     */
+    public static boolean isAvailable() {
+        return Minecraft.getInstance().getSingleplayerServer() != null;
+    }
+
+    /**
+     * 以玩家的权限执行一批指令，结果在服务器线程上完成 / Run a command batch with the player's permissions; the future completes on the server thread
+     */
+    public static CompletableFuture<ServerCommandRunner.Outcome> dispatch(List<String> commands, UUID playerId) {
+        IntegratedServer server = Minecraft.getInstance().getSingleplayerServer();
+        if (server == null) {
+            return CompletableFuture.completedFuture(new ServerCommandRunner.Outcome(0, List.of(), 0, "No integrated server"));
+        }
+        return ServerCommandRunner.run(server, commands, playerId);
+    }
+}
@@ -36,6 +36,8 @@ public class KeyBindings {
         public static void onClientTick(TickEvent.ClientTickEvent event) {
             if (event.phase == TickEvent.Phase.END) {
                 while (OPEN_GUI_KEY.consumeClick()) {
+                    // 打开界面时后台预热连接 / Warm up the connection in the background while the screen opens
+                    ProviderRegistry.warmUp(Config.aiProvider);
                     Minecraft.getInstance().setScreen(new AICommandScreen());
                 }
             }
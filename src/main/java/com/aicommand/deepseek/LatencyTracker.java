@@ -0,0 +1,40 @@
+package com.aicommand.deepseek;
+
+import java.util.Arrays;
+
+/**
+ * 延迟统计 - 保存最近的请求耗时并计算分位数，也用于令牌数和字节数等其他样本
+ * Latency Tracker - Keeps the most recent request latencies and computes percentiles over them; also used for other samples such as token and byte counts
+ */
+public class LatencyTracker {
+    private final long[] samples;
+    private int next = 0;
+    private int count = 0;
+
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[windowSize];
+    }
+
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * 计算分位数，没有样本时返回-1 / Compute a percentile, or -1 when there are no samples
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
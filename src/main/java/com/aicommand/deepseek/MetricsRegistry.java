@@ -0,0 +1,243 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.Gson;
+import com.mojang.logging.LogUtils;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标注册表 - 按服务商和模型汇总请求指标，保存各阶段最近样本的滚动窗口用于计算分位数
+ * Metrics Registry - Aggregates request metrics per provider and model, keeping a rolling window of recent samples per stage for percentiles
+ *
+ * <p>开启导出时，每个请求追加一行到游戏目录下的 aicommand/metrics.csv 或 metrics.jsonl，写入在后台线程进行。
+ * When export is enabled, every request appends one row to aicommand/metrics.csv or metrics.jsonl in the game directory, written on a background thread.</p>
+ */
+public class MetricsRegistry {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Gson GSON = new Gson();
+    private static final int WINDOW = 200;
+    private static final String CSV_HEADER = "timestamp,provider,model,capture_us,serialize_us,rate_limit_us,first_byte_us,http_us,parse_us,"
+            + "prompt_tokens,completion_tokens,cached_prompt_tokens,bytes_sent,bytes_received,attempts,response_cache_hit,error";
+
+    private static final Map<String, Series> series = new LinkedHashMap<>();
+    private static final Object exportLock = new Object();
+
+    /**
+     * 统计的阶段，样本使用各阶段自己的单位 / Tracked stages; samples are in each stage's own unit
+     */
+    public enum Stage {
+        CAPTURE("capture", "µs"),
+        SERIALIZE("serialize", "µs"),
+        RATE_LIMIT("wait", "ms"),
+        FIRST_BYTE("ttfb", "ms"),
+        HTTP("http", "ms"),
+        PARSE("parse", "µs"),
+        PROMPT_TOKENS("prompt", "tok"),
+        COMPLETION_TOKENS("completion", "tok"),
+        BYTES_SENT("sent", "B"),
+        BYTES_RECEIVED("received", "B");
+
+        private final String label;
+        private final String unit;
+
+        Stage(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public String unit() {
+            return unit;
+        }
+    }
+
+    /**
+     * 一个阶段的分位数，没有样本时为-1 / Percentiles of one stage, -1 without samples
+     */
+    public record Percentiles(Stage stage, long p50, long p95, long p99) {
+    }
+
+    /**
+     * 一个服务商和模型的汇总 / Summary of one provider and model
+     */
+    public record Summary(String key, long requests, long errors, long responseCacheHits, long retries, List<Percentiles> stages) {
+    }
+
+    /**
+     * 一个服务商和模型的计数和滚动窗口 / Counters and rolling windows of one provider and model
+     */
+    private static final class Series {
+        private final Map<Stage, LatencyTracker> trackers = new LinkedHashMap<>();
+        private long requests;
+        private long errors;
+        private long responseCacheHits;
+        private long retries;
+
+        private Series() {
+            for (Stage stage : Stage.values()) {
+                trackers.put(stage, new LatencyTracker(WINDOW));
+            }
+        }
+
+        private void record(RequestMetrics metrics) {
+            requests++;
+            if (metrics.error) {
+                errors++;
+            }
+            if (metrics.responseCacheHit) {
+                responseCacheHits++;
+                trackers.get(Stage.CAPTURE).record(TimeUnit.NANOSECONDS.toMicros(metrics.captureNanos));
+                return; // 命中缓存没有网络阶段 / A cache hit has no network stages
+            }
+            retries += Math.max(0, metrics.attempts - 1);
+            trackers.get(Stage.CAPTURE).record(TimeUnit.NANOSECONDS.toMicros(metrics.captureNanos));
+            trackers.get(Stage.SERIALIZE).record(TimeUnit.NANOSECONDS.toMicros(metrics.serializeNanos));
+            trackers.get(Stage.RATE_LIMIT).record(TimeUnit.NANOSECONDS.toMillis(metrics.rateLimitNanos));
+            if (metrics.error) {
+                return;
+            }
+            trackers.get(Stage.FIRST_BYTE).record(TimeUnit.NANOSECONDS.toMillis(metrics.firstByteNanos));
+            trackers.get(Stage.HTTP).record(TimeUnit.NANOSECONDS.toMillis(metrics.httpNanos));
+            trackers.get(Stage.PARSE).record(TimeUnit.NANOSECONDS.toMicros(metrics.parseNanos));
+            trackers.get(Stage.BYTES_SENT).record(metrics.bytesSent);
+            trackers.get(Stage.BYTES_RECEIVED).record(metrics.bytesReceived);
+            if (metrics.promptTokens > 0 || metrics.completionTokens > 0) {
+                trackers.get(Stage.PROMPT_TOKENS).record(metrics.promptTokens);
+                trackers.get(Stage.COMPLETION_TOKENS).record(metrics.completionTokens);
+            }
+        }
+
+        private Summary summarize(String key) {
+            List<Percentiles> stages = new ArrayList<>();
+            trackers.forEach((stage, tracker) -> stages.add(new Percentiles(stage,
+                    tracker.percentile(50), tracker.percentile(95), tracker.percentile(99))));
+            return new Summary(key, requests, errors, responseCacheHits, retries, stages);
+        }
+    }
+
+    /**
+     * 记录一个结束的请求，可在任意线程调用 / Record a finished request; safe on any thread
+     */
+    public static void record(RequestMetrics metrics) {
+        synchronized (series) {
+            series.computeIfAbsent(metrics.provider + "/" + metrics.model, key -> new Series()).record(metrics);
+        }
+        if (Config.metricsExport != Config.MetricsExport.NONE) {
+            Config.MetricsExport format = Config.metricsExport;
+            BackgroundExecutor.executor().execute(() -> export(format, metrics));
+        }
+    }
+
+    public static List<Summary> summaries() {
+        List<Summary> summaries = new ArrayList<>();
+        synchronized (series) {
+            series.forEach((key, value) -> summaries.add(value.summarize(key)));
+        }
+        return summaries;
+    }
+
+    public static void reset() {
+        synchronized (series) {
+            series.clear();
+        }
+    }
+
+    /**
+     * 每个服务商和模型几行文字，供界面叠加层和指令使用 / A few lines of text per provider and model, for the screen overlay and the command
+     */
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Summary summary : summaries()) {
+            lines.add(summary.key() + "  n=" + summary.requests() + " err=" + summary.errors()
+                    + " cache=" + summary.responseCacheHits() + " retry=" + summary.retries());
+            Map<Stage, Percentiles> byStage = new LinkedHashMap<>();
+            summary.stages().forEach(percentiles -> byStage.put(percentiles.stage(), percentiles));
+            // 网络、本地处理、大小各一行 / One line each for network, local work and sizes
+            appendLine(lines, byStage, Stage.RATE_LIMIT, Stage.FIRST_BYTE, Stage.HTTP);
+            appendLine(lines, byStage, Stage.CAPTURE, Stage.SERIALIZE, Stage.PARSE);
+            appendLine(lines, byStage, Stage.PROMPT_TOKENS, Stage.COMPLETION_TOKENS, Stage.BYTES_SENT, Stage.BYTES_RECEIVED);
+        }
+        return lines;
+    }
+
+    private static void appendLine(List<String> lines, Map<Stage, Percentiles> byStage, Stage... stages) {
+        StringBuilder line = new StringBuilder();
+        for (Stage stage : stages) {
+            String text = format(byStage.get(stage));
+            if (text != null) {
+                line.append(line.isEmpty() ? "  " : "   ").append(text);
+            }
+        }
+        if (!line.isEmpty()) {
+            lines.add(line.toString());
+        }
+    }
+
+    /**
+     * 把一个阶段格式化为 "label p50/p95/p99 unit"，没有样本时返回null / Format one stage as "label p50/p95/p99 unit", or null without samples
+     */
+    public static String format(Percentiles percentiles) {
+        if (percentiles.p50() < 0) {
+            return null;
+        }
+        return percentiles.stage().label() + " " + percentiles.p50() + "/" + percentiles.p95() + "/" + percentiles.p99() + " " + percentiles.stage().unit();
+    }
+
+    public static Path exportFile(Config.MetricsExport format) {
+        String name = format == Config.MetricsExport.CSV ? "metrics.csv" : "metrics.jsonl";
+        return FMLPaths.GAMEDIR.get().resolve(AICommand.MODID).resolve(name);
+    }
+
+    private static void export(Config.MetricsExport format, RequestMetrics metrics) {
+        Path file = exportFile(format);
+        synchronized (exportLock) {
+            try {
+                Files.createDirectories(file.getParent());
+                boolean newFile = !Files.exists(file);
+                try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    if (format == Config.MetricsExport.CSV) {
+                        if (newFile) {
+                            writer.write(CSV_HEADER + "\n");
+                        }
+                        writer.write(csvRow(metrics) + "\n");
+                    } else {
+                        writer.write(GSON.toJson(metrics) + "\n");
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Failed to export metrics to {}", file, e);
+            }
+        }
+    }
+
+    private static String csvRow(RequestMetrics m) {
+        return m.timestampMillis + "," + csv(m.provider) + "," + csv(m.model) + ","
+                + TimeUnit.NANOSECONDS.toMicros(m.captureNanos) + "," + TimeUnit.NANOSECONDS.toMicros(m.serializeNanos) + ","
+                + TimeUnit.NANOSECONDS.toMicros(m.rateLimitNanos) + ","
+                + TimeUnit.NANOSECONDS.toMicros(m.firstByteNanos) + "," + TimeUnit.NANOSECONDS.toMicros(m.httpNanos) + ","
+                + TimeUnit.NANOSECONDS.toMicros(m.parseNanos) + "," + m.promptTokens + "," + m.completionTokens + "," + m.cachedPromptTokens + ","
+                + m.bytesSent + "," + m.bytesReceived + "," + m.attempts + "," + m.responseCacheHit + "," + m.error;
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,443 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * OpenAI兼容客户端 - 适用于任何实现 chat/completions 接口的服务
+ * OpenAI-compatible client - Works with any service implementing the chat/completions API
+ */
+public class OpenAICompatibleClient implements CommandProvider {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    
+    private final HttpClient httpClient;
+    private final ProviderSettings settings;
+    // 客户端限流，按服务商账户的每分钟额度 / Client-side rate limits, sized to the provider account's per-minute allowance
+    private TokenBucket requestLimiter;
+    private TokenBucket tokenLimiter;
+    private volatile String apiKey; // 未设置时使用配置中的密钥 / Falls back to the configured key when unset
+    
+    public OpenAICompatibleClient(HttpClient httpClient, ProviderSettings settings) {
+        this.httpClient = httpClient;
+        this.settings = settings;
+        this.requestLimiter = new TokenBucket(settings.requestsPerMinute());
+        this.tokenLimiter = new TokenBucket(settings.tokensPerMinute());
+    }
+    
+    @Override
+    public ProviderSettings settings() {
+        return settings;
+    }
+    
+    HttpClient httpClient() {
+        return httpClient;
+    }
+    
+    /**
+     * 配置重载时接管旧客户端的限流状态和运行时密钥，额度不变的桶继续使用 / Take over the rate limit state and runtime key of the client replaced by a config reload, keeping every bucket whose allowance did not change
+     */
+    void inheritState(OpenAICompatibleClient previous) {
+        if (previous.settings.requestsPerMinute() == settings.requestsPerMinute()) {
+            requestLimiter = previous.requestLimiter;
+        }
+        if (previous.settings.tokensPerMinute() == settings.tokensPerMinute()) {
+            tokenLimiter = previous.tokenLimiter;
+        }
+        apiKey = previous.apiKey;
+    }
+    
+    @Override
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+    
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(settings.baseUri())
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenAccept(response -> LOGGER.debug("{} connection warmed up ({} via {})", settings.displayName(), response.statusCode(), response.version()));
+    }
+    
+    @Override
+    public CompletableFuture<Completion> generateCommand(GameSnapshot snapshot, String userRequest, Consumer<String> lineConsumer) {
+        // 截止时间覆盖整个请求，包括流式读取，而HTTP超时只管到响应头为止 / The deadline covers the whole exchange including the stream, while the HTTP timeout stops at the response headers
+        return BackgroundExecutor.supply(() -> {
+            RequestMetrics metrics = new RequestMetrics();
+            metrics.provider = settings.displayName();
+            metrics.model = settings.model();
+            metrics.captureNanos = snapshot.captureNanos();
+            Completion completion;
+            try {
+                completion = sendChatRequest(snapshot, userRequest, lineConsumer, metrics);
+            } catch (InterruptedException e) {
+                LOGGER.debug("{} request cancelled", settings.displayName());
+                throw e; // 取消的请求不计入指标 / Cancelled requests are not counted
+            } catch (Exception e) {
+                LOGGER.error("Error calling {} API", settings.displayName(), e);
+                completion = Completion.error("Error: Failed to generate command - " + e.getMessage());
+            }
+            metrics.error = completion.isError();
+            MetricsRegistry.record(metrics);
+            return completion;
+        }, settings.requestTimeout());
+    }
+    
+    private Completion sendChatRequest(GameSnapshot snapshot, String userRequest, Consumer<String> lineConsumer, RequestMetrics metrics)
+            throws IOException, InterruptedException {
+        ProviderSettings settings = this.settings;
+        String apiKey = this.apiKey != null ? this.apiKey : settings.apiKey();
+        boolean hasApiKey = apiKey != null && !apiKey.trim().isEmpty();
+        if (settings.requiresApiKey() && !hasApiKey) {
+            return Completion.error("Error: " + settings.displayName() + " API key not configured");
+        }
+        
+        // 构建请求体 / Build request body
+        PipelineEvents.RequestBuild buildEvent = new PipelineEvents.RequestBuild();
+        buildEvent.begin();
+        long serializeStart = System.nanoTime();
+        boolean stream = settings.stream() && lineConsumer != null;
+        
+        // 游戏数据上下文，只格式化快照不读取游戏 / Game data context, formatted from the snapshot without touching the game
+        PipelineEvents.ContextSerialize contextEvent = new PipelineEvents.ContextSerialize();
+        contextEvent.begin();
+        String gameContext = GameContextFormatter.format(snapshot, userRequest);
+        if (contextEvent.shouldCommit()) {
+            contextEvent.provider = settings.displayName();
+            contextEvent.model = settings.model();
+            contextEvent.format = Config.contextFormat.name();
+            contextEvent.bytes = TokenEstimator.utf8Length(gameContext);
+            contextEvent.tokens = TokenEstimator.estimateTokens(gameContext);
+            contextEvent.commit();
+        }
+        
+        // 固定前缀已预先编码，只需转义游戏状态和请求 / The fixed prefix is pre-encoded, only the game state and request are escaped
+        RequestBodyEncoder.Encoded body = RequestBodyEncoder.encode(settings, gameContext, userRequest, stream);
+        metrics.serializeNanos = System.nanoTime() - serializeStart;
+        metrics.bytesSent = body.length();
+        if (buildEvent.shouldCommit()) {
+            buildEvent.provider = settings.displayName();
+            buildEvent.model = settings.model();
+            buildEvent.bytes = metrics.bytesSent;
+            buildEvent.tokens = body.estimatedTokens();
+            buildEvent.streamed = stream;
+            buildEvent.commit();
+        }
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(settings.chatUri())
+                .header("Content-Type", "application/json")
+                .timeout(settings.requestTimeout())
+                .POST(body.publisher());
+        // 本地服务可以不需要密钥 / Local servers may not need a key
+        if (hasApiKey) {
+            requestBuilder.header("Authorization", "Bearer " + apiKey);
+        }
+        HttpRequest request = requestBuilder.build();
+        
+        // 先在本地等待额度，最坏情况按生成满 maxTokens 计算 / Wait for the allowance locally first, assuming the worst case of a full maxTokens completion
+        long estimatedTokens = body.estimatedTokens() + settings.maxTokens();
+        metrics.rateLimitNanos = tokenLimiter.acquire(estimatedTokens);
+        // 无论成功、出错还是被取消都退回没用掉的额度，没有用量时全部退回 / Give back the unused allowance whether the request succeeded, failed or was cancelled, all of it when no usage was reported
+        try {
+            return exchange(request, stream, lineConsumer, metrics);
+        } finally {
+            refundUnused(estimatedTokens, metrics);
+        }
+    }
+    
+    /**
+     * 发送请求并读取响应，已经拿到令牌额度之后调用 / Send the request and read the response, called once the token allowance has been taken
+     */
+    private Completion exchange(HttpRequest request, boolean stream, Consumer<String> lineConsumer, RequestMetrics metrics)
+            throws IOException, InterruptedException {
+        long httpStart = System.nanoTime();
+        long waitedBefore = metrics.rateLimitNanos;
+        PipelineEvents.HttpExchange httpEvent = new PipelineEvents.HttpExchange();
+        httpEvent.begin();
+        
+        // 流式请求 / Streaming request
+        if (stream) {
+            HttpResponse<Stream<String>> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofLines(), metrics);
+            try (Stream<String> lines = response.body()) {
+                if (response.statusCode() != 200) {
+                    commitHttpEvent(httpEvent, response.statusCode(), metrics, true);
+                    LOGGER.error("{} API error: {} - {}", settings.displayName(), response.statusCode(), String.join("\n", lines.toList()));
+                    return Completion.error("Error: API request failed with status " + response.statusCode());
+                }
+                // 整个流一个事件，与每个数据块的事件并存 / One event for the whole stream, next to the per-chunk events
+                PipelineEvents.ResponseParse parseEvent = new PipelineEvents.ResponseParse();
+                parseEvent.begin();
+                SseCommandStream sse = new SseCommandStream(lineConsumer, settings.displayName(), settings.model());
+                String outcome = "error";
+                try {
+                    String content = sse.read(lines);
+                    metrics.httpNanos = System.nanoTime() - httpStart - (metrics.rateLimitNanos - waitedBefore);
+                    metrics.parseNanos = sse.parseNanos();
+                    metrics.bytesReceived = sse.bytesReceived();
+                    metrics.recordUsage(sse.usage());
+                    commitHttpEvent(httpEvent, response.statusCode(), metrics, true);
+                    outcome = content.isEmpty() ? "empty" : "ok";
+                    return content.isEmpty() ? Completion.error("Error: No response from API") : completion(content, sse.usage());
+                } finally {
+                    if (parseEvent.shouldCommit()) {
+                        parseEvent.provider = settings.displayName();
+                        parseEvent.model = settings.model();
+                        parseEvent.bytes = sse.bytesReceived();
+                        parseEvent.promptTokens = sse.usage().promptTokens();
+                        parseEvent.completionTokens = sse.usage().completionTokens();
+                        parseEvent.outcome = outcome;
+                        parseEvent.commit();
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Stream cancelled"); // 读取流时被取消 / Cancelled while reading the stream
+                }
+                LOGGER.error("Error parsing {} stream", settings.displayName(), e);
+                return Completion.error("Error: Failed to parse API response");
+            }
+        }
+        
+        // 发送请求，响应体作为流读取 / Send request, reading the body as a stream
+        HttpResponse<InputStream> response = sendWithRetry(request, HttpResponse.BodyHandlers.ofInputStream(), metrics);
+        metrics.httpNanos = System.nanoTime() - httpStart - (metrics.rateLimitNanos - waitedBefore);
+        CountingInputStream responseBody = new CountingInputStream(response.body());
+        
+        if (response.statusCode() != 200) {
+            try (responseBody) {
+                String error = new String(responseBody.readAllBytes(), StandardCharsets.UTF_8);
+                metrics.bytesReceived = responseBody.count();
+                commitHttpEvent(httpEvent, response.statusCode(), metrics, false);
+                LOGGER.error("{} API error: {} - {}", settings.displayName(), response.statusCode(), error);
+            }
+            return Completion.error("Error: API request failed with status " + response.statusCode());
+        }
+        
+        // 边读边解析，解析时间包含接收响应体 / Parse while reading, so the parse time includes receiving the body
+        PipelineEvents.ResponseParse parseEvent = new PipelineEvents.ResponseParse();
+        parseEvent.begin();
+        long parseStart = System.nanoTime();
+        String outcome = "error";
+        try (responseBody) {
+            Completion parsed = parseResponse(responseBody);
+            metrics.parseNanos = System.nanoTime() - parseStart;
+            metrics.recordUsage(parsed.usage());
+            outcome = parsed.isError() ? "empty" : "ok";
+            return parsed.isError() ? parsed : completion(parsed.text(), parsed.usage());
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Response cancelled"); // 读取响应体时被取消 / Cancelled while reading the body
+            }
+            LOGGER.error("Error parsing {} response", settings.displayName(), e);
+            return Completion.error("Error: Failed to parse API response");
+        } finally {
+            metrics.bytesReceived = responseBody.count();
+            commitHttpEvent(httpEvent, response.statusCode(), metrics, false);
+            if (parseEvent.shouldCommit()) {
+                parseEvent.provider = settings.displayName();
+                parseEvent.model = settings.model();
+                parseEvent.bytes = metrics.bytesReceived;
+                parseEvent.promptTokens = metrics.promptTokens;
+                parseEvent.completionTokens = metrics.completionTokens;
+                parseEvent.outcome = outcome;
+                parseEvent.commit();
+            }
+        }
+    }
+    
+    /**
+     * 流式解析非流式响应，只取出 choices[0].message.content 和用量，其余字段跳过不建树；格式错误时抛出异常
+     * Parse a non-streamed response incrementally, pulling out only choices[0].message.content and the usage and skipping everything else without building a tree; throws on malformed JSON
+     */
+    static Completion parseResponse(InputStream body) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String content = null;
+        TokenUsage usage = TokenUsage.NONE;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "choices" -> content = readFirstContent(reader);
+                case "usage" -> usage = TokenUsage.read(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (content == null) {
+            return Completion.error("Error: No response from API");
+        }
+        return new Completion(content.trim(), usage);
+    }
+    
+    /**
+     * 读取 choices 数组中第一项的 message.content，其余选项跳过 / Read message.content of the first entry in the choices array, skipping the other choices
+     */
+    private static String readFirstContent(JsonReader reader) throws IOException {
+        String content = null;
+        reader.beginArray();
+        if (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("message")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("content") && reader.peek() == JsonToken.STRING) {
+                        content = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        return content;
+    }
+    
+    /**
+     * 统计读取字节数的输入流 / Input stream that counts the bytes read
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+        
+        long count() {
+            return count;
+        }
+    }
+    
+    /**
+     * 提交HTTP交换事件，时长包含读取整个响应体 / Commit the HTTP exchange event, whose duration includes reading the whole body
+     */
+    private void commitHttpEvent(PipelineEvents.HttpExchange event, int status, RequestMetrics metrics, boolean streamed) {
+        if (event.shouldCommit()) {
+            event.provider = settings.displayName();
+            event.model = settings.model();
+            event.status = status;
+            event.attempts = metrics.attempts;
+            event.bytesSent = metrics.bytesSent;
+            event.bytesReceived = metrics.bytesReceived;
+            event.streamed = streamed;
+            event.commit();
+        }
+    }
+    
+    /**
+     * 发送请求，可重试的状态码和网络错误按重试策略重试；每次尝试都占用一次请求额度 / Send a request, retrying retryable statuses and network errors per the retry policy; every attempt takes one request permit
+     *
+     * <p>记录尝试次数、等待额度的时间和最后一次尝试的首字节时间。
+     * Records the attempts, the time spent waiting for the allowance and the first-byte time of the last attempt.</p>
+     *
+     * @return 成功的响应，或最后一次失败的响应 / The successful response, or the last failed one
+     */
+    private <T> HttpResponse<T> sendWithRetry(HttpRequest request, HttpResponse.BodyHandler<T> handler, RequestMetrics metrics)
+            throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            metrics.rateLimitNanos += requestLimiter.acquire(1);
+            if (attempt == 1 && metrics.rateLimitNanos > TimeUnit.MILLISECONDS.toNanos(100)) {
+                LOGGER.debug("{} request waited {} ms for the rate limit", settings.displayName(), TimeUnit.NANOSECONDS.toMillis(metrics.rateLimitNanos));
+            }
+            metrics.attempts = attempt;
+            long attemptStart = System.nanoTime();
+            HttpResponse<T> response;
+            try {
+                // 处理器在收到响应头时被调用 / The handler is called once the response headers arrive
+                response = httpClient.send(request, responseInfo -> {
+                    metrics.firstByteNanos = System.nanoTime() - attemptStart;
+                    return handler.apply(responseInfo);
+                });
+            } catch (IOException e) {
+                if (!RetryPolicy.canRetry(attempt)) {
+                    throw e;
+                }
+                long delay = RetryPolicy.delayMillis(attempt, Optional.empty());
+                LOGGER.warn("{} request failed ({}), retrying in {} ms", settings.displayName(), e.toString(), delay);
+                Thread.sleep(delay);
+                continue;
+            }
+            int status = response.statusCode();
+            if (status == 200 || !RetryPolicy.isRetryableStatus(status) || !RetryPolicy.canRetry(attempt)) {
+                return response;
+            }
+            if (response.body() instanceof AutoCloseable body) {
+                try {
+                    body.close(); // 释放流式响应的连接 / Release the connection of a streamed response
+                } catch (Exception ignored) {
+                    // 已经在放弃这个响应 / Already discarding this response
+                }
+            }
+            long delay = RetryPolicy.delayMillis(attempt, response.headers().firstValue("Retry-After"));
+            if (status == 429) {
+                // 被限流时所有请求一起暂停，而不是各自继续撞上429 / When rate limited, every request pauses together instead of each running into another 429
+                requestLimiter.pause(TimeUnit.MILLISECONDS.toNanos(delay));
+            }
+            LOGGER.warn("{} API returned {}, retrying in {} ms (attempt {}/{})", settings.displayName(), status, delay, attempt + 1, Config.retryMaxAttempts);
+            if (status != 429) {
+                Thread.sleep(delay);
+            }
+        }
+    }
+    
+    /**
+     * 退回估算中没有实际用掉的令牌额度；没有记录用量时（错误状态、异常或取消）全部退回
+     * Give back the part of the estimate that was not actually used; all of it when no usage was recorded (error status, exception or cancellation)
+     */
+    private void refundUnused(long estimatedTokens, RequestMetrics metrics) {
+        tokenLimiter.refund(estimatedTokens - metrics.promptTokens - metrics.completionTokens);
+    }
+    
+    private Completion completion(String content, TokenUsage usage) {
+        if (usage.isKnown()) {
+            LOGGER.debug("{} usage: {} prompt tokens ({} cached), {} completion tokens",
+                settings.displayName(), usage.promptTokens(), usage.cachedPromptTokens(), usage.completionTokens());
+        }
+        return new Completion(content, usage);
+    }
+}
\ No newline at end of file
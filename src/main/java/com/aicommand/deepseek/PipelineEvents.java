@@ -0,0 +1,154 @@
+package com.aicommand.deepseek;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 流水线事件 - 生成和执行流程各阶段的 Java Flight Recorder 事件，在录制中以 "AI Command" 分类显示
+ * Pipeline Events - Java Flight Recorder events for every stage of the generate-and-execute pipeline, shown under the "AI Command" category in a recording
+ *
+ * <p>未录制时 shouldCommit() 直接返回 false，字段不会被填写，开销接近于零。
+ * Without a recording, shouldCommit() returns false right away and no field is filled in, so the cost is close to zero.</p>
+ */
+public final class PipelineEvents {
+    private static final String CATEGORY = "AI Command";
+
+    private PipelineEvents() {
+    }
+
+    @Name("aicommand.Capture")
+    @Label("Game State Capture")
+    @Description("Capturing the game snapshot sent with a request")
+    @Category({CATEGORY, "Generation"})
+    @StackTrace(false)
+    public static final class Capture extends Event {
+        @Label("Side")
+        public String side;
+        @Label("Inventory Items")
+        public int inventoryItems;
+        @Label("Nearby Block Kinds")
+        public int nearbyBlocks;
+    }
+
+    @Name("aicommand.ContextSerialize")
+    @Label("Context Serialization")
+    @Description("Formatting the game snapshot as prompt text")
+    @Category({CATEGORY, "Generation"})
+    @StackTrace(false)
+    public static final class ContextSerialize extends Event {
+        @Label("Provider")
+        public String provider;
+        @Label("Model")
+        public String model;
+        @Label("Format")
+        public String format;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+        @Label("Estimated Tokens")
+        public int tokens;
+    }
+
+    @Name("aicommand.RequestBuild")
+    @Label("Request Body Build")
+    @Description("Building and serializing the chat completion request body")
+    @Category({CATEGORY, "Generation"})
+    @StackTrace(false)
+    public static final class RequestBuild extends Event {
+        @Label("Provider")
+        public String provider;
+        @Label("Model")
+        public String model;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+        @Label("Estimated Tokens")
+        public long tokens;
+        @Label("Streamed")
+        public boolean streamed;
+    }
+
+    @Name("aicommand.HttpExchange")
+    @Label("HTTP Exchange")
+    @Description("Sending the request and reading the whole response, retries included")
+    @Category({CATEGORY, "Generation"})
+    @StackTrace(false)
+    public static final class HttpExchange extends Event {
+        @Label("Provider")
+        public String provider;
+        @Label("Model")
+        public String model;
+        @Label("Status")
+        public int status;
+        @Label("Attempts")
+        public int attempts;
+        @Label("Bytes Sent")
+        @DataAmount
+        public long bytesSent;
+        @Label("Bytes Received")
+        @DataAmount
+        public long bytesReceived;
+        @Label("Streamed")
+        public boolean streamed;
+    }
+
+    @Name("aicommand.ResponseParse")
+    @Label("Response Parse")
+    @Description("Parsing a whole response, or one chunk of a streamed response (outcome chunk)")
+    @Category({CATEGORY, "Generation"})
+    @StackTrace(false)
+    public static final class ResponseParse extends Event {
+        @Label("Provider")
+        public String provider;
+        @Label("Model")
+        public String model;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+        @Label("Prompt Tokens")
+        public int promptTokens;
+        @Label("Completion Tokens")
+        public int completionTokens;
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("aicommand.CommandValidation")
+    @Label("Command Validation")
+    @Description("Splitting off and validating one generated command on the client thread")
+    @Category({CATEGORY, "Commands"})
+    @StackTrace(false)
+    public static final class CommandValidation extends Event {
+        @Label("Command")
+        public String command;
+        @Label("Valid")
+        public boolean valid;
+        @Label("Error")
+        public String error;
+    }
+
+    @Name("aicommand.ExecuteBatch")
+    @Label("Command Batch Execution")
+    @Description("Executing one batch of generated commands, from the button press until the batch has finished")
+    @Category({CATEGORY, "Commands"})
+    @StackTrace(false)
+    public static final class ExecuteBatch extends Event {
+        @Label("Mode")
+        public String mode;
+        @Label("Commands")
+        public int commands;
+        @Label("Commands Before Optimization")
+        public int originalCommands;
+        @Label("Succeeded")
+        public int succeeded;
+        @Label("Failed")
+        public int failed;
+        @Label("Outcome")
+        public String outcome;
+    }
+}
@@ -0,0 +1,52 @@
+package com.aicommand.deepseek;
+
+/**
+ * 提示缓存统计 - 累计一个服务商的缓存命中率，并比较命中和未命中请求的平均延迟
+ * Prompt Cache Stats - Accumulates a provider's prompt cache hit rate and compares the average latency of hit and missed requests
+ */
+public class PromptCacheStats {
+    private long requests;
+    private long promptTokens;
+    private long cachedPromptTokens;
+    private long hitRequests;
+    private long hitLatencyMillis;
+    private long missRequests;
+    private long missLatencyMillis;
+
+    public synchronized void record(TokenUsage usage, long latencyMillis) {
+        if (!usage.isKnown()) {
+            return;
+        }
+        requests++;
+        promptTokens += usage.promptTokens();
+        cachedPromptTokens += usage.cachedPromptTokens();
+        if (usage.cachedPromptTokens() > 0) {
+            hitRequests++;
+            hitLatencyMillis += latencyMillis;
+        } else {
+            missRequests++;
+            missLatencyMillis += latencyMillis;
+        }
+    }
+
+    public synchronized long requests() {
+        return requests;
+    }
+
+    /**
+     * 命中缓存的提示令牌占比，0到100 / Share of prompt tokens served from the cache, 0 to 100
+     */
+    public synchronized int hitRatePercent() {
+        return promptTokens == 0 ? 0 : (int) (cachedPromptTokens * 100 / promptTokens);
+    }
+
+    /**
+     * 命中与未命中请求的平均延迟差，样本不足时为0 / Average latency of missed minus hit requests, or 0 without samples of both
+     */
+    public synchronized long latencySavedMillis() {
+        if (hitRequests == 0 || missRequests == 0) {
+            return 0;
+        }
+        return missLatencyMillis / missRequests - hitLatencyMillis / hitRequests;
+    }
+}
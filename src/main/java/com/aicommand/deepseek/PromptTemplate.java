@@ -0,0 +1,90 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * 提示模板 - 固定的系统提示、指令语法提示和示例总在最前面，易变的游戏状态放在最后的用户消息里
+ * Prompt Template - The fixed system prompt, command grammar hints and examples always come first; the volatile game state goes into the final user message
+ *
+ * <p>服务商的前缀缓存（DeepSeek上下文缓存、OpenAI提示缓存）只对逐字节相同的前缀生效，所以前缀中不能出现任何随请求变化的内容。
+ * Provider prefix caching (DeepSeek context caching, OpenAI prompt caching) only applies to byte-identical prefixes, so nothing that varies per request may appear in the prefix.</p>
+ *
+ * <p>目前只有DeepSeek受益：它以64个令牌为单位缓存，而OpenAI要求前缀至少1024个令牌，这里的固定前缀远不到这个长度，所以OpenAI的缓存命中始终为0。
+ * Only DeepSeek benefits today: it caches in 64-token units, while OpenAI needs a prefix of at least 1024 tokens, which this fixed prefix is well short of, so OpenAI always reports no cached tokens.</p>
+ */
+public final class PromptTemplate {
+
+    static final String SYSTEM_PROMPT =
+        "你是一个智能的Minecraft指令生成器，能够根据当前游戏状态和用户请求生成精确的指令。" +
+        "请根据提供的游戏状态信息（玩家位置、物品栏、世界环境等）生成最合适的Minecraft指令。" +
+        "只返回指令，不附加任何解释或额外文本。如果需要多个指令，用换行符分隔。" +
+        "你要发挥想象力，尽最大努力尝试达成目标" +
+        "请注意用户提问时的语言，中文请求用中文回复，英文请求用英文回复。\n" +
+        "\n" +
+        "Command grammar (Java Edition 1.21):\n" +
+        "- One command per line, each starting with /. No numbering, no code fences.\n" +
+        "- Coordinates: absolute x y z, relative ~ ~ ~ or local ^ ^ ^ (never mix ^ with ~ or numbers). Prefer ~ so commands work wherever the player stands.\n" +
+        "- Selectors: @s (self), @p, @a, @e[type=minecraft:zombie,distance=..10,limit=1,sort=nearest].\n" +
+        "- Namespaced ids: minecraft:diamond_sword, minecraft:stone.\n" +
+        "- Items with components: /give @s minecraft:diamond_sword[enchantments={sharpness:5}] 1\n" +
+        "- /setblock x y z block [replace|keep|destroy]; /fill x1 y1 z1 x2 y2 z2 block [hollow|outline|replace <filter>], at most 32768 blocks per /fill.\n" +
+        "- /effect give <targets> <effect> [seconds] [amplifier] [hideParticles]; /enchant <targets> <enchantment> [level].\n" +
+        "- /time set day|night|noon|midnight|<ticks>; /weather clear|rain|thunder [duration].\n" +
+        "- /tp <targets> <x y z>; /summon <entity> [x y z] [nbt]; /execute at @s run <command>.\n" +
+        "\n" +
+        "The user message starts with the current game state, followed by the [request].";
+
+    // 用户消息中游戏状态和请求之间的标记 / Marker between the game state and the request in the user message
+    static final String REQUEST_HEADER = "[request]\n";
+
+    // 示例对话，同样属于固定前缀 / Example exchanges, also part of the fixed prefix
+    private static final String[][] FEW_SHOT = {
+        {
+            "[game state]\nplayer pos=12,70,-40 facing=north mode=creative\nhand main=minecraft:diamond_sword\n[request]\nenchant my sword with sharpness",
+            "/enchant @s minecraft:sharpness 5"
+        },
+        {
+            "[game state]\nplayer pos=0,64,0 facing=east mode=creative\nworld dim=minecraft:overworld time=night\n[request]\n在我前面建一堵5格高的石墙",
+            "/fill ~2 ~ ~-2 ~2 ~4 ~2 minecraft:stone"
+        },
+        {
+            "[game state]\nplayer pos=-8,80,15 facing=south mode=survival hp=6.0/20.0 food=4/20\n[request]\nheal me and make it day",
+            "/effect give @s minecraft:instant_health 1 1\n/effect give @s minecraft:saturation 5 0\n/time set day"
+        }
+    };
+
+    private PromptTemplate() {
+    }
+
+    /**
+     * 依次加入固定的系统提示和示例 / Append the fixed system prompt and examples
+     */
+    public static void appendStablePrefix(JsonArray messages) {
+        messages.add(message("system", SYSTEM_PROMPT));
+        for (String[] example : FEW_SHOT) {
+            messages.add(message("user", example[0]));
+            messages.add(message("assistant", example[1]));
+        }
+    }
+
+    /**
+     * 最后的用户消息：游戏状态在前，请求在后 / Final user message: the game state first, then the request
+     */
+    public static JsonObject userMessage(String gameContext, String userRequest) {
+        StringBuilder content = new StringBuilder(gameContext.length() + userRequest.length() + 16);
+        content.append(gameContext);
+        if (!gameContext.endsWith("\n")) {
+            content.append('\n');
+        }
+        content.append(REQUEST_HEADER).append(userRequest);
+        return message("user", content.toString());
+    }
+
+    private static JsonObject message(String role, String content) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", role);
+        message.addProperty("content", content);
+        return message;
+    }
+}
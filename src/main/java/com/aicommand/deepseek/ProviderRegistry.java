@@ -0,0 +1,119 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.net.http.HttpClient;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务商注册表 - 根据配置创建并共享各服务商客户端及其HTTP连接池
+ * Provider Registry - Builds the provider clients from the config and shares them with their HTTP connection pools
+ */
+public class ProviderRegistry {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    // 连接空闲时间远小于JDK默认保活时间，因此一分钟内只预热一次 / Idle time is far below the JDK keep-alive, so warm up at most once a minute
+    private static final long WARM_UP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private static final Map<Config.AIProvider, CommandProvider> providers = new EnumMap<>(Config.AIProvider.class);
+    private static final Map<Config.AIProvider, Long> lastWarmUpNanos = new EnumMap<>(Config.AIProvider.class);
+
+    /**
+     * 创建共享客户端，在客户端初始化或服务器启动时调用 / Create the shared clients, called during client setup or server start
+     */
+    public static synchronized void init() {
+        if (providers.isEmpty()) {
+            reload();
+        }
+    }
+
+    /**
+     * 按当前配置更新客户端 / Update the clients to the current config
+     *
+     * <p>只有连接相关的设置变化时才新建HttpClient并关闭旧的；其他设置（密钥、模型、限额等）沿用原连接池和限流状态。
+     * Only a change to the connection settings builds a new HttpClient and closes the old one; any other change (key, model, limits) keeps the connection pool and the rate limit state.</p>
+     */
+    public static synchronized void reload() {
+        for (Map.Entry<Config.AIProvider, ProviderSettings> entry : Config.providerSettings.entrySet()) {
+            ProviderSettings settings = entry.getValue();
+            CommandProvider existing = providers.get(entry.getKey());
+            if (existing != null && existing.settings().equals(settings)) {
+                continue;
+            }
+            OpenAICompatibleClient previous = existing instanceof OpenAICompatibleClient client ? client : null;
+            boolean reconnect = previous == null || !sameTransport(previous.settings(), settings);
+            OpenAICompatibleClient created = create(entry.getKey(), reconnect ? httpClient(settings) : previous.httpClient(), settings);
+            if (previous != null) {
+                created.inheritState(previous);
+                if (reconnect) {
+                    // close 会等待进行中的请求结束，所以放到后台 / close waits for in-flight requests to finish, so do it in the background
+                    BackgroundExecutor.executor().execute(previous.httpClient()::close);
+                }
+            }
+            providers.put(entry.getKey(), created);
+            if (reconnect) {
+                lastWarmUpNanos.remove(entry.getKey());
+                LOGGER.info("AI provider {} configured: {} ({})", entry.getKey(), settings.chatUri(), settings.model());
+            } else {
+                LOGGER.debug("AI provider {} settings updated, keeping its connections", entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 两组设置能否共用同一个HttpClient：地址和连接超时决定连接，HTTP版本固定为HTTP/2 / Whether two settings can share one HttpClient: the address and connect timeout shape the connections, and the HTTP version is always HTTP/2
+     */
+    private static boolean sameTransport(ProviderSettings a, ProviderSettings b) {
+        return a.baseUri().equals(b.baseUri()) && a.connectTimeout().equals(b.connectTimeout());
+    }
+
+    private static OpenAICompatibleClient create(Config.AIProvider provider, HttpClient httpClient, ProviderSettings settings) {
+        return switch (provider) {
+            case DEEPSEEK -> new DeepSeekClient(httpClient, settings);
+            case OPENAI -> new OpenAIClient(httpClient, settings);
+            case CUSTOM -> new OpenAICompatibleClient(httpClient, settings);
+        };
+    }
+
+    /**
+     * 每个服务商一个HttpClient，在所有请求间复用HTTP/2保活连接 / One HttpClient per provider reuses HTTP/2 keep-alive connections across requests
+     */
+    static HttpClient httpClient(ProviderSettings settings) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.connectTimeout())
+                .executor(BackgroundExecutor.executor())
+                .build();
+    }
+
+    /**
+     * 获取服务商客户端，配置尚未加载时返回null / Get a provider client, or null if the config has not been loaded yet
+     */
+    public static synchronized CommandProvider get(Config.AIProvider provider) {
+        init();
+        return providers.get(provider);
+    }
+
+    /**
+     * 在后台预热指定服务商的连接 / Warm up the connection to the given provider in the background
+     */
+    public static synchronized void warmUp(Config.AIProvider provider) {
+        CommandProvider client = provider != null ? get(provider) : null;
+        if (client == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        Long last = lastWarmUpNanos.get(provider);
+        if (last != null && now - last < WARM_UP_INTERVAL_NANOS) {
+            return;
+        }
+        lastWarmUpNanos.put(provider, now);
+
+        client.warmUp().exceptionally(throwable -> {
+            LOGGER.debug("Connection warm-up for {} failed", provider, throwable);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package com.aicommand.deepseek;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * 服务商设置 - 一个OpenAI兼容端点的全部参数
+ * Provider Settings - Everything needed to talk to one OpenAI-compatible endpoint
+ */
+public record ProviderSettings(
+        String displayName,
+        String baseUrl,
+        String chatEndpoint,
+        String model,
+        String apiKey,
+        boolean requiresApiKey,
+        Duration connectTimeout,
+        Duration requestTimeout,
+        int maxTokens,
+        boolean stream,
+        int requestsPerMinute,
+        int tokensPerMinute) {
+
+    public URI chatUri() {
+        return URI.create(stripTrailingSlash(baseUrl) + chatEndpoint);
+    }
+
+    public URI baseUri() {
+        return URI.create(stripTrailingSlash(baseUrl) + "/");
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,207 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求体编码器 - 每个模型的固定JSON前缀只序列化一次并缓存为UTF-8字节，每次请求只转义游戏状态和用户请求
+ * Request Body Encoder - The fixed JSON prefix of each model is serialized once and cached as UTF-8 bytes; each request only escapes the game state and the user request
+ *
+ * <p>模板由与以前相同的 JsonObject 生成：把最后一条用户消息的内容换成占位符，在占位符处切成前后两段，所以字段顺序和固定部分与 Gson 的输出一致。
+ * The template is generated from the same JsonObject as before, with the final user message's content replaced by a placeholder and split there,
+ * so the field order and the fixed parts match Gson's output.</p>
+ */
+public final class RequestBodyEncoder {
+    private static final String PLACEHOLDER = "@@AICOMMAND_CONTENT@@";
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    // 转义后的固定片段 / Fixed fragments, already escaped
+    private static final byte[] ESCAPED_NEWLINE = "\\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ESCAPED_REQUEST_HEADER = escape(PromptTemplate.REQUEST_HEADER);
+
+    // 按影响固定部分的设置缓存模板 / Templates cached by the settings that shape the fixed part
+    private static final Map<TemplateKey, Template> TEMPLATES = new ConcurrentHashMap<>();
+
+    private record TemplateKey(String model, int maxTokens, boolean stream) {
+    }
+
+    /**
+     * 预先编码的前后两段和前缀的估算令牌数 / Pre-encoded head and tail, and the estimated tokens of the prefix
+     */
+    private record Template(byte[] head, byte[] tail, int tokens) {
+    }
+
+    /**
+     * 编码结果，缓冲区可能比请求体长 / Encoded request; the buffer may be longer than the body
+     *
+     * @param bytes           缓冲区，前 length 个字节是UTF-8请求体 / Buffer whose first length bytes are the UTF-8 body
+     * @param length          请求体字节数 / Body size in bytes
+     * @param estimatedTokens 整个请求体的估算令牌数 / Estimated tokens of the whole body
+     */
+    public record Encoded(byte[] bytes, int length, int estimatedTokens) {
+        public HttpRequest.BodyPublisher publisher() {
+            return HttpRequest.BodyPublishers.ofByteArray(bytes, 0, length);
+        }
+    }
+
+    private RequestBodyEncoder() {
+    }
+
+    /**
+     * 编码一次 chat/completions 请求 / Encode one chat/completions request
+     */
+    public static Encoded encode(ProviderSettings settings, String gameContext, String userRequest, boolean stream) {
+        Template template = TEMPLATES.computeIfAbsent(new TemplateKey(settings.model(), settings.maxTokens(), stream),
+                key -> template(settings, stream));
+        // 上下文每行末尾的换行转义后多一个字节，按十六分之一预留 / Each escaped line break in the context takes one extra byte, so a sixteenth is reserved for that
+        int contextBytes = TokenEstimator.utf8Length(gameContext);
+        int capacity = template.head().length + contextBytes + contextBytes / 16 + ESCAPED_NEWLINE.length + ESCAPED_REQUEST_HEADER.length
+                + TokenEstimator.utf8Length(userRequest) + 16 + template.tail().length;
+        Buffer buffer = new Buffer(capacity);
+        buffer.write(template.head());
+        buffer.writeEscaped(gameContext);
+        if (!gameContext.endsWith("\n")) {
+            buffer.write(ESCAPED_NEWLINE);
+        }
+        buffer.write(ESCAPED_REQUEST_HEADER);
+        buffer.writeEscaped(userRequest);
+        buffer.write(template.tail());
+        int tokens = template.tokens() + TokenEstimator.estimateTokens(gameContext) + TokenEstimator.estimateTokens(userRequest);
+        return new Encoded(buffer.bytes, buffer.size, tokens);
+    }
+
+    /**
+     * 以 JsonObject 形式构建请求体，用于生成模板，也是基准测试的对照 / Build the request body as a JsonObject; used to generate the template and as the benchmark baseline
+     */
+    static JsonObject tree(ProviderSettings settings, String gameContext, String userRequest, boolean stream) {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("model", settings.model());
+        requestBody.addProperty("stream", stream);
+        if (stream) {
+            // 让流的最后一个数据块带上令牌用量 / Ask for the token usage in the final chunk of the stream
+            JsonObject streamOptions = new JsonObject();
+            streamOptions.addProperty("include_usage", true);
+            requestBody.add("stream_options", streamOptions);
+        }
+        requestBody.addProperty("max_tokens", settings.maxTokens());
+        requestBody.addProperty("temperature", 0.7);
+
+        // 固定前缀在前，游戏状态和请求在最后 / The fixed prefix first, the game state and request last
+        JsonArray messages = new JsonArray();
+        PromptTemplate.appendStablePrefix(messages);
+        messages.add(PromptTemplate.userMessage(gameContext, userRequest));
+        requestBody.add("messages", messages);
+        return requestBody;
+    }
+
+    private static byte[] escape(String text) {
+        Buffer buffer = new Buffer(text.length() * 2);
+        buffer.writeEscaped(text);
+        return Arrays.copyOf(buffer.bytes, buffer.size);
+    }
+
+    private static Template template(ProviderSettings settings, boolean stream) {
+        JsonObject body = tree(settings, "", "", stream);
+        JsonArray messages = body.getAsJsonArray("messages");
+        messages.get(messages.size() - 1).getAsJsonObject().addProperty("content", PLACEHOLDER);
+        String json = new Gson().toJson(body);
+        int split = json.indexOf(PLACEHOLDER);
+        String head = json.substring(0, split);
+        String tail = json.substring(split + PLACEHOLDER.length());
+        return new Template(head.getBytes(StandardCharsets.UTF_8), tail.getBytes(StandardCharsets.UTF_8),
+                TokenEstimator.estimateTokens(head) + TokenEstimator.estimateTokens(tail) + TokenEstimator.estimateTokens(PromptTemplate.REQUEST_HEADER));
+    }
+
+    /**
+     * 直接写UTF-8的字节缓冲，转义规则与 JSON 字符串相同 / Byte buffer written as UTF-8 directly, escaping as in a JSON string
+     */
+    private static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void write(byte[] source) {
+            ensure(source.length);
+            System.arraycopy(source, 0, bytes, size, source.length);
+            size += source.length;
+        }
+
+        void writeEscaped(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                    ensure(1);
+                    bytes[size++] = (byte) c;
+                } else if (c < 0x80) {
+                    writeAsciiEscape(c);
+                } else if (c < 0x800) {
+                    ensure(2);
+                    bytes[size++] = (byte) (0xC0 | c >> 6);
+                    bytes[size++] = (byte) (0x80 | c & 0x3F);
+                } else if (c == '\u2028' || c == '\u2029') {
+                    writeUnicodeEscape(c); // JavaScript 中的行分隔符，与 Gson 一样转义 / Line separators in JavaScript, escaped as Gson does
+                } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    ensure(4);
+                    bytes[size++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    ensure(1);
+                    bytes[size++] = '?'; // 不成对的代理项，与 String.getBytes 相同 / Unpaired surrogate, as String.getBytes does
+                } else {
+                    ensure(3);
+                    bytes[size++] = (byte) (0xE0 | c >> 12);
+                    bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        private void writeAsciiEscape(char c) {
+            char escape = switch (c) {
+                case '"' -> '"';
+                case '\\' -> '\\';
+                case '\n' -> 'n';
+                case '\r' -> 'r';
+                case '\t' -> 't';
+                case '\b' -> 'b';
+                case '\f' -> 'f';
+                default -> 0;
+            };
+            if (escape == 0) {
+                writeUnicodeEscape(c);
+                return;
+            }
+            ensure(2);
+            bytes[size++] = '\\';
+            bytes[size++] = (byte) escape;
+        }
+
+        private void writeUnicodeEscape(char c) {
+            ensure(6);
+            bytes[size++] = '\\';
+            bytes[size++] = 'u';
+            bytes[size++] = HEX[c >> 12 & 0xF];
+            bytes[size++] = HEX[c >> 8 & 0xF];
+            bytes[size++] = HEX[c >> 4 & 0xF];
+            bytes[size++] = HEX[c & 0xF];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
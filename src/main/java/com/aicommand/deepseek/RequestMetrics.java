@@ -0,0 +1,48 @@
+package com.aicommand.deepseek;
+
+/**
+ * 请求指标 - 一次生成请求在各阶段的耗时、令牌数和传输字节数，请求结束后交给 {@link MetricsRegistry}
+ * Request Metrics - Per-stage time, token counts and transferred bytes of one generation request, handed to {@link MetricsRegistry} when the request ends
+ *
+ * <p>时间单位都是纳秒，未测到的阶段为0。
+ * All times are in nanoseconds; stages that were not measured stay 0.</p>
+ */
+public class RequestMetrics {
+    public long timestampMillis = System.currentTimeMillis();
+    public String provider = "";
+    public String model = "";
+    public long captureNanos = 0; // 采集游戏快照 / Capturing the game snapshot
+    public long serializeNanos = 0; // 格式化上下文并序列化请求体 / Formatting the context and serializing the request body
+    public long rateLimitNanos = 0; // 在本地限流中等待 / Waiting in the client-side rate limiter
+    public long firstByteNanos = 0; // 发送到收到响应头 / From sending to the response headers
+    public long httpNanos = 0; // 发送到读完响应，包括重试但不含限流等待 / From sending to the end of the response, retries included but rate limit waits excluded
+    public long parseNanos = 0; // 解析响应 / Parsing the response
+    public int promptTokens = 0;
+    public int completionTokens = 0;
+    public int cachedPromptTokens = 0;
+    public long bytesSent = 0;
+    public long bytesReceived = 0;
+    public int attempts = 0;
+    public boolean responseCacheHit = false;
+    public boolean error = false;
+
+    /**
+     * 响应缓存命中时的指标，没有网络请求 / Metrics of a response cache hit, which makes no network request
+     */
+    public static RequestMetrics cacheHit(String provider, String model, long captureNanos) {
+        RequestMetrics metrics = new RequestMetrics();
+        metrics.provider = provider;
+        metrics.model = model;
+        metrics.captureNanos = captureNanos;
+        metrics.responseCacheHit = true;
+        return metrics;
+    }
+
+    public void recordUsage(TokenUsage usage) {
+        if (usage.isKnown()) {
+            promptTokens = usage.promptTokens();
+            completionTokens = usage.completionTokens();
+            cachedPromptTokens = usage.cachedPromptTokens();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.mojang.logging.LogUtils;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 响应缓存 - 按规范化请求和游戏上下文指纹缓存生成的指令
+ * Response Cache - Caches generated commands by normalized request plus a game-context fingerprint
+ */
+public class ResponseCache {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Gson GSON = new Gson();
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}。！？，、]+$");
+    // 三个连续的绝对坐标数字说明指令依赖玩家位置 / Three consecutive absolute numbers mean the commands depend on the player position
+    private static final Pattern ABSOLUTE_COORDINATES = Pattern.compile("(?<![~^\\w.])-?\\d+(\\.\\d+)?\\s+-?\\d+(\\.\\d+)?\\s+-?\\d+(\\.\\d+)?");
+
+    private final Path diskFile;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private final Object saveLock = new Object();
+    private boolean diskLoaded = false;
+
+    /**
+     * @param diskFile 持久化文件，为null时只使用内存 / Persistence file, or null for memory only
+     */
+    public ResponseCache(Path diskFile) {
+        this.diskFile = diskFile;
+    }
+
+    /**
+     * 缓存条目，position为null表示与玩家位置无关 / Cache entry; a null position means it does not depend on the player position
+     */
+    private record Entry(String response, long createdMillis, String position) {
+    }
+
+    /**
+     * 生成缓存键 / Build a cache key
+     */
+    public static String key(String providerKey, String userRequest, String contextFingerprint) {
+        return providerKey + '\u0000' + normalize(userRequest) + '\u0000' + contextFingerprint;
+    }
+
+    /**
+     * 规范化用户请求：小写、合并空白、去掉结尾标点 / Normalize a request: lower case, collapse whitespace, drop trailing punctuation
+     */
+    public static String normalize(String userRequest) {
+        String normalized = WHITESPACE.matcher(userRequest.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(normalized).replaceAll("");
+    }
+
+    /**
+     * 只取影响生成结果的上下文字段；上下文中带有玩家名，回复可能直接点名，所以缓存和合并请求都不跨玩家
+     * Only take the context fields that change the generated commands; the context names the player and replies may target them by name,
+     * so neither the cache nor request coalescing is shared across players
+     */
+    public static String contextFingerprint(GameDataCollector.PlayerData player, GameDataCollector.InventoryData inventory,
+                                            GameDataCollector.WorldData world) {
+        return player.playerName + '|' + world.dimensionName + '|' + player.gameMode + '|'
+                + (inventory.mainHandItem != null ? inventory.mainHandItem : "");
+    }
+
+    public static String positionFingerprint(GameDataCollector.PlayerData player) {
+        return player.positionX + "," + player.positionY + "," + player.positionZ;
+    }
+
+    /**
+     * 响应是否使用了绝对坐标，即只对生成时的玩家位置有效 / Whether a response uses absolute coordinates, so it only fits the position it was generated for
+     */
+    public static boolean isPositional(String response) {
+        return ABSOLUTE_COORDINATES.matcher(response).find();
+    }
+
+    /**
+     * 查询缓存，未命中返回null / Look up the cache, or return null on a miss
+     */
+    public String get(String key, String position) {
+        if (!Config.responseCacheEnabled) {
+            return null;
+        }
+        synchronized (this) {
+            loadFromDisk();
+            Entry entry = entries.get(key);
+            if (entry != null && isExpired(entry)) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry != null && (entry.position() == null || entry.position().equals(position))) {
+                hits.incrementAndGet();
+                return entry.response();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 存入一个成功的响应 / Store a successful response
+     */
+    public void put(String key, String position, String response) {
+        if (!Config.responseCacheEnabled) {
+            return;
+        }
+        boolean positional = isPositional(response);
+        synchronized (this) {
+            loadFromDisk();
+            entries.put(key, new Entry(response, System.currentTimeMillis(), positional ? position : null));
+            while (entries.size() > Config.responseCacheMaxEntries) {
+                entries.remove(entries.keySet().iterator().next()); // 淘汰最久未使用的 / Evict the least recently used
+            }
+        }
+        scheduleSave();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdMillis() > Config.responseCacheTtlSeconds * 1000L;
+    }
+
+    /**
+     * 首次使用时读取磁盘缓存 / Read the disk tier on first use
+     */
+    private void loadFromDisk() {
+        if (diskLoaded) {
+            return;
+        }
+        diskLoaded = true;
+        if (!Config.responseCacheDisk || diskFile == null || !Files.isRegularFile(diskFile)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(diskFile, StandardCharsets.UTF_8)) {
+            Map<String, Entry> stored = GSON.fromJson(reader, new TypeToken<LinkedHashMap<String, Entry>>() {}.getType());
+            if (stored != null) {
+                stored.forEach((key, entry) -> {
+                    if (entry != null && entry.response() != null && !isExpired(entry)) {
+                        entries.put(key, entry);
+                    }
+                });
+            }
+            LOGGER.info("Loaded {} cached responses from {}", entries.size(), diskFile);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to load response cache from {}", diskFile, e);
+        }
+    }
+
+    /**
+     * 在后台写入磁盘，合并短时间内的多次写入 / Write to disk in the background, coalescing writes that happen close together
+     */
+    private void scheduleSave() {
+        if (!Config.responseCacheDisk || diskFile == null || !saveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        BackgroundExecutor.executor().execute(() -> {
+            saveScheduled.set(false);
+            Map<String, Entry> copy;
+            synchronized (this) {
+                copy = new LinkedHashMap<>(entries);
+            }
+            synchronized (saveLock) {
+                try {
+                    Files.createDirectories(diskFile.getParent());
+                    Path temp = diskFile.resolveSibling(diskFile.getFileName() + ".tmp");
+                    try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                        GSON.toJson(copy, writer);
+                    }
+                    Files.move(temp, diskFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to save response cache to {}", diskFile, e);
+                }
+            }
+        });
+    }
+}
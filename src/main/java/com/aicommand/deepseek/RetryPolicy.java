@@ -0,0 +1,63 @@
+package com.aicommand.deepseek;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试策略 - 对可重试的状态码做带抖动的指数退避，服务器给出 Retry-After 时以它为准
+ * Retry Policy - Exponential backoff with jitter for retryable statuses, deferring to Retry-After whenever the server sends one
+ */
+public class RetryPolicy {
+    // 限流、超时和网关类错误可以重试，其余4xx重试也不会成功 / Rate limits, timeouts and gateway errors are retryable; other 4xx would fail again
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(408, 425, 429, 500, 502, 503, 504);
+
+    public static boolean isRetryableStatus(int status) {
+        return RETRYABLE_STATUSES.contains(status);
+    }
+
+    /**
+     * 第 attempt 次尝试失败后是否还能重试，attempt 从1开始 / Whether another attempt is allowed after attempt number attempt failed, counting from 1
+     */
+    public static boolean canRetry(int attempt) {
+        return attempt < Config.retryMaxAttempts;
+    }
+
+    /**
+     * 第 attempt 次尝试失败后的等待时间 / Delay after attempt number attempt failed
+     *
+     * <p>没有 Retry-After 时使用完全抖动：在 0 到 base·2^(attempt-1) 之间随机取值，避免所有客户端同时重试。
+     * Without Retry-After this is full jitter, a random value between 0 and base·2^(attempt-1), so clients do not retry in lockstep.</p>
+     */
+    public static long delayMillis(int attempt, Optional<String> retryAfter) {
+        long serverDelay = retryAfter.map(RetryPolicy::parseRetryAfterMillis).orElse(-1L);
+        if (serverDelay >= 0) {
+            // 加一点抖动，避免在同一时刻一起醒来 / Add a little jitter so waiters do not wake up together
+            return serverDelay + ThreadLocalRandom.current().nextLong(Config.retryBaseDelayMs + 1);
+        }
+        long ceiling = Math.min(Config.retryMaxDelayMs, Config.retryBaseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * 解析 Retry-After，可以是秒数或HTTP日期，无法解析时返回-1 / Parse Retry-After, either seconds or an HTTP date; -1 when it cannot be parsed
+     */
+    static long parseRetryAfterMillis(String value) {
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Math.round(Double.parseDouble(trimmed) * 1000));
+        } catch (NumberFormatException ignored) {
+            // 不是秒数，尝试日期 / Not seconds, try a date
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
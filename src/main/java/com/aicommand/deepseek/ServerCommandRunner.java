@@ -0,0 +1,77 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 服务器指令执行器 - 在服务器线程上以玩家的权限执行一批指令，并统计每条指令的结果，集成服务器和专用服务器通用
+ * Server Command Runner - Runs a command batch on the server thread with a player's permissions and records every command's result; shared by integrated and dedicated servers
+ */
+public class ServerCommandRunner {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    /**
+     * 执行结果 / Execution outcome
+     *
+     * @param succeeded      成功的指令数 / Commands that succeeded
+     * @param failed         失败的指令 / Commands that failed
+     * @param durationNanos  在服务器线程上的耗时 / Time spent on the server thread
+     * @param error          整批无法执行时的原因，否则为 null / Why the batch could not run at all, or null
+     */
+    public record Outcome(int succeeded, List<String> failed, long durationNanos, String error) {
+    }
+
+    /**
+     * 把整批指令作为一个任务提交到服务器线程，结果在服务器线程上完成 / Submit the whole batch as one server thread task; the future completes on the server thread
+     */
+    public static CompletableFuture<Outcome> run(MinecraftServer server, List<String> commands, UUID playerId) {
+        List<String> batch = List.copyOf(commands);
+        CompletableFuture<Outcome> result = new CompletableFuture<>();
+        server.execute(() -> {
+            ServerPlayer player = server.getPlayerList().getPlayer(playerId);
+            if (player == null) {
+                result.complete(new Outcome(0, List.of(), 0, "Player not found"));
+                return;
+            }
+            result.complete(execute(server, player, batch));
+        });
+        return result;
+    }
+
+    /**
+     * 立即执行一批指令，只能在服务器线程调用 / Run a command batch right away; server thread only
+     */
+    public static Outcome execute(MinecraftServer server, ServerPlayer player, List<String> commands) {
+        long start = System.nanoTime();
+        // 回调报告每次执行的结果，execute 分叉时可能多次回调 / The callback reports every execution result, possibly several times when execute forks
+        boolean[] succeeded = new boolean[1];
+        CommandSourceStack source = player.createCommandSourceStack().withCallback((success, value) -> succeeded[0] |= success);
+        int successes = 0;
+        List<String> failed = new ArrayList<>();
+        for (String command : commands) {
+            succeeded[0] = false;
+            try {
+                server.getCommands().performPrefixedCommand(source, command);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to execute command: {}", command, e);
+            }
+            if (succeeded[0]) {
+                successes++;
+            } else {
+                failed.add(command);
+            }
+        }
+        long duration = System.nanoTime() - start;
+        LOGGER.info("Ran {} commands for {} in {} µs: {} succeeded, {} failed",
+                commands.size(), player.getName().getString(), duration / 1000, successes, failed.size());
+        return new Outcome(successes, failed, duration, null);
+    }
+}
@@ -0,0 +1,88 @@
+package com.aicommand.deepseek;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.registries.ForgeRegistries;
+
+/**
+ * 服务器端游戏数据 - 在服务器线程上为执行 /ai 的玩家采集快照，不依赖任何客户端类
+ * Server Game Data - Captures a snapshot for the player running /ai on the server thread, without touching any client class
+ *
+ * <p>周围方块的扫描依赖客户端的区块事件缓存，服务器端不采集。
+ * The surroundings scan relies on the client's chunk event cache, so it is not collected on the server.</p>
+ */
+public class ServerGameData {
+
+    /**
+     * 采集玩家的游戏状态，必须在服务器线程调用 / Capture a player's game state; must be called on the server thread
+     */
+    public static GameSnapshot capture(ServerPlayer player) {
+        PipelineEvents.Capture event = new PipelineEvents.Capture();
+        event.begin();
+        long start = System.nanoTime();
+        GameDataCollector.PlayerData playerData = collectPlayerData(player);
+        GameDataCollector.InventoryData inventoryData = collectInventoryData(player);
+        GameDataCollector.WorldData worldData = collectWorldData(player);
+        GameSnapshot snapshot = new GameSnapshot(playerData, inventoryData, worldData, System.nanoTime() - start);
+        snapshot.commit(event, "server");
+        return snapshot;
+    }
+
+    private static GameDataCollector.PlayerData collectPlayerData(ServerPlayer player) {
+        GameDataCollector.PlayerData data = new GameDataCollector.PlayerData();
+        data.playerName = player.getName().getString();
+        data.health = player.getHealth();
+        data.maxHealth = player.getMaxHealth();
+        data.foodLevel = player.getFoodData().getFoodLevel();
+        data.experienceLevel = player.experienceLevel;
+        data.gameMode = player.gameMode.getGameModeForPlayer().getName();
+        BlockPos pos = player.blockPosition();
+        data.positionX = pos.getX();
+        data.positionY = pos.getY();
+        data.positionZ = pos.getZ();
+        data.facing = player.getDirection().getName();
+        return data;
+    }
+
+    private static GameDataCollector.InventoryData collectInventoryData(ServerPlayer player) {
+        GameDataCollector.InventoryData data = new GameDataCollector.InventoryData();
+        if (!player.getMainHandItem().isEmpty()) {
+            data.mainHandItem = itemInfo(player.getMainHandItem());
+        }
+        if (!player.getOffhandItem().isEmpty()) {
+            data.offHandItem = itemInfo(player.getOffhandItem());
+        }
+        for (int i = 0; i < player.getInventory().getContainerSize(); i++) {
+            ItemStack stack = player.getInventory().getItem(i);
+            if (!stack.isEmpty()) {
+                data.inventoryItems.add(itemInfo(stack));
+            }
+        }
+        return data;
+    }
+
+    private static GameDataCollector.WorldData collectWorldData(ServerPlayer player) {
+        GameDataCollector.WorldData data = new GameDataCollector.WorldData();
+        ServerLevel level = player.serverLevel();
+        BlockPos pos = player.blockPosition();
+        data.dimensionName = level.dimension().location().toString();
+        data.dayTime = level.getDayTime();
+        data.isDay = (level.getDayTime() % 24000) < 12000;
+        data.isRaining = level.isRaining();
+        data.isThundering = level.isThundering();
+        // 生物群系是数据驱动的，直接取持有者的键 / Biomes are data driven, so take the holder's key directly
+        data.biomeName = level.getBiome(pos).unwrapKey().map(key -> key.location().toString()).orElse(null);
+        ResourceLocation below = ForgeRegistries.BLOCKS.getKey(level.getBlockState(pos.below()).getBlock());
+        data.blockBelow = below != null ? below.toString() : "unknown";
+        return data;
+    }
+
+    private static String itemInfo(ItemStack stack) {
+        ResourceLocation location = ForgeRegistries.ITEMS.getKey(stack.getItem());
+        String name = location != null ? location.toString() : "unknown";
+        return stack.getCount() > 1 ? name + " x" + stack.getCount() : name;
+    }
+}
@@ -0,0 +1,227 @@
+package com.aicommand.deepseek;
+
+import com.mojang.logging.LogUtils;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.ClickEvent;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.HoverEvent;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.TickTask;
+import net.minecraft.server.level.ServerPlayer;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务器生成队列 - 所有玩家的 /ai 请求共用一个有界队列，按玩家轮流取出，同时进行的请求数有上限
+ * Server Generation Queue - The /ai requests of all players share one bounded queue that is served round-robin per player, with a cap on requests in flight
+ *
+ * <p>每个玩家有排队数量上限和冷却时间，队列满时直接拒绝，而不是堆积线程或请求。生成结果回到服务器线程上执行或显示。
+ * Every player has a queue limit and a cooldown, and a full queue rejects right away instead of piling up threads or requests. Results go back to the server thread to be run or shown.</p>
+ */
+public class ServerGenerationQueue {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    // 有等待请求的玩家，按轮到的顺序排列 / Players with waiting requests, in turn order
+    private static final Deque<UUID> turns = new ArrayDeque<>();
+    private static final Map<UUID, Deque<Request>> waiting = new HashMap<>();
+    // 每个玩家排队和进行中的请求数 / Queued plus running requests per player
+    private static final Map<UUID, Integer> perPlayer = new HashMap<>();
+    private static final Map<UUID, Long> lastSubmitNanos = new HashMap<>();
+    private static int queued;
+    private static int running;
+
+    private record Request(MinecraftServer server, UUID playerId, String text, GameSnapshot snapshot, long submittedNanos) {
+    }
+
+    /**
+     * 提交结果，messageKey 是要显示给玩家的翻译键 / Submission result; messageKey is the translation key shown to the player
+     */
+    public record Admission(boolean accepted, String messageKey, int value) {
+        private static Admission rejected(String messageKey, int value) {
+            return new Admission(false, messageKey, value);
+        }
+    }
+
+    /**
+     * 为玩家提交一个生成请求，只能在服务器线程调用 / Submit a generation request for a player; server thread only
+     */
+    public static synchronized Admission submit(MinecraftServer server, ServerPlayer player, String text) {
+        CommandProvider provider = ProviderRegistry.get(Config.aiProvider);
+        if (provider == null) {
+            return Admission.rejected("commands.aicommand.ai.not_configured", 0);
+        }
+        String apiKey = Config.apiKey(Config.aiProvider);
+        if (provider.settings().requiresApiKey() && (apiKey == null || apiKey.trim().isEmpty())) {
+            return Admission.rejected("commands.aicommand.ai.not_configured", 0);
+        }
+
+        UUID playerId = player.getUUID();
+        long now = System.nanoTime();
+        long cooldownNanos = TimeUnit.SECONDS.toNanos(Config.serverCooldownSeconds);
+        // 冷却记录保留到过期为止，重新登录不会重置 / Cooldowns are kept until they expire, so relogging does not reset them
+        lastSubmitNanos.values().removeIf(submitted -> now - submitted >= cooldownNanos);
+        Long last = lastSubmitNanos.get(playerId);
+        if (last != null && now - last < cooldownNanos) {
+            int secondsLeft = (int) TimeUnit.NANOSECONDS.toSeconds(cooldownNanos - (now - last)) + 1;
+            return Admission.rejected("commands.aicommand.ai.cooldown", secondsLeft);
+        }
+        if (perPlayer.getOrDefault(playerId, 0) >= Config.serverMaxPerPlayer) {
+            return Admission.rejected("commands.aicommand.ai.player_limit", Config.serverMaxPerPlayer);
+        }
+        if (queued >= Config.serverMaxQueued) {
+            return Admission.rejected("commands.aicommand.ai.queue_full", queued);
+        }
+
+        Request request = new Request(server, playerId, text, ServerGameData.capture(player), now);
+        Deque<Request> playerQueue = waiting.computeIfAbsent(playerId, id -> {
+            turns.add(id);
+            return new ArrayDeque<>();
+        });
+        playerQueue.add(request);
+        queued++;
+        perPlayer.merge(playerId, 1, Integer::sum);
+        lastSubmitNanos.put(playerId, now);
+        drain();
+
+        Deque<Request> stillWaiting = waiting.get(playerId);
+        if (stillWaiting != null && stillWaiting.contains(request)) {
+            return new Admission(true, "commands.aicommand.ai.queued", queued);
+        }
+        return new Admission(true, "commands.aicommand.ai.generating", 0);
+    }
+
+    /**
+     * 丢弃玩家尚未开始的请求，例如玩家退出时 / Drop a player's requests that have not started, for example when they log out
+     */
+    public static synchronized void drop(UUID playerId) {
+        Deque<Request> playerQueue = waiting.remove(playerId);
+        turns.remove(playerId);
+        if (playerQueue != null) {
+            queued -= playerQueue.size();
+            release(playerId, playerQueue.size());
+        }
+    }
+
+    /**
+     * 清空队列，服务器关闭时调用 / Clear the queue, called when the server stops
+     */
+    public static synchronized void clear() {
+        if (queued > 0) {
+            LOGGER.info("Dropped {} queued /ai requests", queued);
+        }
+        turns.clear();
+        waiting.clear();
+        perPlayer.clear();
+        lastSubmitNanos.clear();
+        queued = 0;
+    }
+
+    public static synchronized int queued() {
+        return queued;
+    }
+
+    public static synchronized int running() {
+        return running;
+    }
+
+    /**
+     * 在并发上限内按玩家轮流开始请求 / Start requests round-robin per player while under the concurrency cap
+     */
+    private static void drain() {
+        while (running < Config.serverMaxConcurrent && !turns.isEmpty()) {
+            UUID playerId = turns.poll();
+            Deque<Request> playerQueue = waiting.get(playerId);
+            Request request = playerQueue.poll();
+            if (playerQueue.isEmpty()) {
+                waiting.remove(playerId);
+            } else {
+                turns.add(playerId); // 排到队尾，让其他玩家先 / Back of the line, so other players go first
+            }
+            queued--;
+            running++;
+            start(request);
+        }
+    }
+
+    private static void start(Request request) {
+        LOGGER.debug("Starting /ai request after {} ms in queue", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.submittedNanos()));
+        CommandGenerator.generate(Config.aiProvider, request.snapshot(), request.text(), null).whenComplete((result, throwable) -> {
+            finish(request.playerId());
+            // 缓存命中时已在服务器线程上、/ai 指令仍在执行，execute 会直接内联运行，所以总是排成新任务
+            // On a cache hit this is already on the server thread while /ai is still running, where execute would run inline, so always queue a fresh task
+            MinecraftServer server = request.server();
+            server.tell(new TickTask(server.getTickCount(), () -> deliver(request, result, throwable)));
+        });
+    }
+
+    private static synchronized void finish(UUID playerId) {
+        running--;
+        release(playerId, 1);
+        drain();
+    }
+
+    private static void release(UUID playerId, int count) {
+        perPlayer.computeIfPresent(playerId, (id, active) -> active > count ? active - count : null);
+    }
+
+    /**
+     * 在服务器线程上执行或显示生成的指令 / Run or show the generated commands on the server thread
+     */
+    private static void deliver(Request request, GenerationResult result, Throwable throwable) {
+        ServerPlayer player = request.server().getPlayerList().getPlayer(request.playerId());
+        if (player == null) {
+            return; // 玩家已离开 / The player has left
+        }
+        if (throwable != null || result.isError()) {
+            String error = throwable != null ? throwable.getMessage() : result.text();
+            player.sendSystemMessage(Component.translatable("commands.aicommand.ai.failed", error).withStyle(ChatFormatting.RED));
+            return;
+        }
+
+        PipelineEvents.ExecuteBatch event = new PipelineEvents.ExecuteBatch();
+        event.begin();
+        List<String> commands = CommandLines.split(result.text());
+        int originalCount = commands.size();
+        if (Config.optimizeCommands) {
+            commands = CommandOptimizer.optimize(commands).commands();
+        }
+        if (commands.isEmpty()) {
+            player.sendSystemMessage(Component.translatable("gui.aicommand.no_commands").withStyle(ChatFormatting.RED));
+            return;
+        }
+
+        if (Config.serverAutoExecute) {
+            ServerCommandRunner.Outcome outcome = ServerCommandRunner.execute(request.server(), player, commands);
+            if (event.shouldCommit()) {
+                event.mode = "server";
+                event.commands = commands.size();
+                event.originalCommands = originalCount;
+                event.succeeded = outcome.succeeded();
+                event.failed = outcome.failed().size();
+                event.outcome = outcome.error() != null ? "error" : outcome.failed().isEmpty() ? "ok" : "partial";
+                event.commit();
+            }
+            player.sendSystemMessage(Component.translatable("gui.aicommand.dispatch_result", outcome.succeeded(), outcome.failed().size(),
+                    TimeUnit.NANOSECONDS.toMicros(outcome.durationNanos())).withStyle(outcome.failed().isEmpty() ? ChatFormatting.GREEN : ChatFormatting.RED));
+            for (String command : outcome.failed()) {
+                player.sendSystemMessage(Component.translatable("gui.aicommand.failed_execute", command).withStyle(ChatFormatting.RED));
+            }
+            return;
+        }
+        // 点击指令填入聊天框，由玩家自己确认执行 / Clicking a command puts it in the chat box, so the player confirms it
+        player.sendSystemMessage(Component.translatable("gui.aicommand.generated_commands"));
+        for (String command : commands) {
+            player.sendSystemMessage(Component.literal("  " + command).withStyle(style -> style
+                    .withColor(ChatFormatting.AQUA)
+                    .withClickEvent(new ClickEvent.SuggestCommand(command))
+                    .withHoverEvent(new HoverEvent.ShowText(Component.translatable("commands.aicommand.ai.click_to_use")))));
+        }
+    }
+}
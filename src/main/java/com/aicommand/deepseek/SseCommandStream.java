@@ -0,0 +1,138 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 流式响应解析器 - 增量解析 text/event-stream 并逐行输出指令
+ * SSE stream parser - Incrementally parses a text/event-stream and emits each finished command line
+ */
+public class SseCommandStream {
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE_MARKER = "[DONE]";
+
+    private final Consumer<String> lineConsumer;
+    private final String provider;
+    private final String model;
+    private final StringBuilder fullContent = new StringBuilder();
+    private final StringBuilder pendingLine = new StringBuilder();
+    private TokenUsage usage = TokenUsage.NONE;
+    private long bytesReceived = 0;
+    private long parseNanos = 0;
+
+    public SseCommandStream(Consumer<String> lineConsumer, String provider, String model) {
+        this.lineConsumer = lineConsumer;
+        this.provider = provider;
+        this.model = model;
+    }
+
+    /**
+     * 读取整个事件流，返回完整内容 / Read the whole event stream and return the full content
+     */
+    public String read(Stream<String> lines) {
+        Iterator<String> iterator = lines.iterator();
+        while (iterator.hasNext()) {
+            String line = iterator.next();
+            bytesReceived += TokenEstimator.utf8Length(line) + 1;
+            if (!line.startsWith(DATA_PREFIX)) {
+                continue; // 跳过注释、事件名和空行 / Skip comments, event names and blank lines
+            }
+            String payload = line.substring(DATA_PREFIX.length()).trim();
+            if (payload.equals(DONE_MARKER)) {
+                break;
+            }
+            if (!payload.isEmpty()) {
+                PipelineEvents.ResponseParse event = new PipelineEvents.ResponseParse();
+                event.begin();
+                long start = System.nanoTime();
+                String delta = extractDelta(payload);
+                parseNanos += System.nanoTime() - start;
+                if (event.shouldCommit()) {
+                    event.provider = provider;
+                    event.model = model;
+                    event.bytes = TokenEstimator.utf8Length(payload);
+                    event.promptTokens = usage.promptTokens();
+                    event.completionTokens = usage.completionTokens();
+                    event.outcome = "chunk";
+                    event.commit();
+                }
+                appendDelta(delta);
+            }
+        }
+        flushPendingLine();
+        return fullContent.toString().trim();
+    }
+
+    /**
+     * 流中报告的令牌用量，没有报告时为 NONE / Token usage reported in the stream, or NONE when none was reported
+     */
+    public TokenUsage usage() {
+        return usage;
+    }
+
+    /**
+     * 已读取的字节数，按UTF-8计算 / Bytes read so far, counted as UTF-8
+     */
+    public long bytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * 解析数据块的总耗时，不含等待网络 / Total time spent parsing chunks, excluding waiting on the network
+     */
+    public long parseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * 从单个数据块中取出 choices[0].delta.content，顺便记录用量 / Extract choices[0].delta.content from one chunk, recording the usage on the way
+     */
+    private String extractDelta(String payload) {
+        JsonObject chunk = JsonParser.parseString(payload).getAsJsonObject();
+        if (chunk.has("usage")) {
+            TokenUsage reported = TokenUsage.parse(chunk.get("usage"));
+            if (reported.isKnown()) {
+                usage = reported;
+            }
+        }
+        JsonArray choices = chunk.getAsJsonArray("choices");
+        if (choices == null || choices.size() == 0) {
+            return null;
+        }
+        JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+        if (delta == null) {
+            return null;
+        }
+        JsonElement content = delta.get("content");
+        return content == null || content.isJsonNull() ? null : content.getAsString();
+    }
+
+    private void appendDelta(String delta) {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        fullContent.append(delta);
+        for (int i = 0; i < delta.length(); i++) {
+            char c = delta.charAt(i);
+            if (c == '\n') {
+                flushPendingLine();
+            } else {
+                pendingLine.append(c);
+            }
+        }
+    }
+
+    private void flushPendingLine() {
+        String line = pendingLine.toString().trim();
+        pendingLine.setLength(0);
+        if (!line.isEmpty()) {
+            lineConsumer.accept(line);
+        }
+    }
+}
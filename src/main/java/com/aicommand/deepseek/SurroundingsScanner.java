@@ -0,0 +1,248 @@
+package com.aicommand.deepseek;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.common.Tags;
+import net.minecraftforge.event.entity.player.PlayerInteractEvent;
+import net.minecraftforge.event.level.ChunkEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 周围环境扫描器 - 通过区块段调色板统计玩家周围的方块，生成方块直方图和值得注意的特征
+ * Surroundings Scanner - Counts the blocks around the player through the chunk section palettes and builds a block histogram plus notable features
+ *
+ * <p>每个区块段的统计结果会被缓存，玩家点击方块、客户端区块加载/卸载或超时后失效，重复请求几乎没有开销。
+ * 方块事件只在逻辑服务器上触发，连接专用服务器时客户端收不到，所以用玩家自己的交互作为客户端信号，其他人的改动由超时兜底。
+ * 只在客户端主线程上使用。
+ * Each chunk section's summary is cached until the player clicks a block in it, the client chunk loads or unloads, or a timeout,
+ * so repeated requests cost almost nothing. Block events only fire on the logical server and never reach a client connected to a
+ * dedicated server, so the player's own interactions are the client-side signal and the timeout covers changes by anyone else.
+ * Client thread only.</p>
+ */
+@Mod.EventBusSubscriber(modid = AICommand.MODID, value = Dist.CLIENT)
+public class SurroundingsScanner {
+    private static final int MAX_HISTOGRAM_ENTRIES = 8;
+    private static final int MAX_FEATURES = 6;
+
+    // 值得单独报告的方块，矿石通过标签判断 / Blocks worth reporting on their own; ores are matched through their tag
+    private static final Set<Block> NOTABLE_BLOCKS = Set.of(
+            Blocks.WATER, Blocks.LAVA, Blocks.CHEST, Blocks.TRAPPED_CHEST, Blocks.BARREL, Blocks.SPAWNER,
+            Blocks.TRIAL_SPAWNER, Blocks.VAULT, Blocks.NETHER_PORTAL, Blocks.END_PORTAL_FRAME, Blocks.BELL, Blocks.ENCHANTING_TABLE);
+
+    // 交互后等待服务器确认方块变化的时间，期间该段每次都重新统计 / Time to wait for the server to confirm a block change after an interaction; the section is recounted on every scan meanwhile
+    private static final long SETTLE_MILLIS = 2000;
+
+    // 区块列 -> 段Y坐标 -> 统计结果 / Chunk column -> section Y -> summary
+    private static final Map<Long, Map<Integer, SectionSummary>> COLUMNS = new HashMap<>();
+    // 被交互弄脏的段 -> 在此之前的统计都作废；多次交互合并为一条 / Sections dirtied by an interaction -> summaries made before this time are stale; repeated interactions coalesce into one entry
+    private static final Map<Long, Long> DIRTY = new HashMap<>();
+    private static Level cachedLevel;
+
+    /**
+     * 一个区块段的统计：方块数量和每种特征方块的一个位置 / Summary of one chunk section: block counts and one position of each notable block
+     */
+    private record SectionSummary(LevelChunk chunk, Map<Block, Integer> counts, Map<Block, Long> samples, long createdMillis) {
+    }
+
+    /**
+     * 扫描结果 / Scan result
+     */
+    public record Surroundings(List<String> histogram, List<String> features) {
+        public static final Surroundings EMPTY = new Surroundings(List.of(), List.of());
+    }
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        // 单人游戏中服务器的区块事件也会到这里 / In singleplayer the server's chunk events arrive here too
+        if (event.getLevel() == cachedLevel) {
+            COLUMNS.remove(event.getChunk().getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (event.getLevel() == cachedLevel) {
+            COLUMNS.remove(event.getChunk().getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLeftClickBlock(PlayerInteractEvent.LeftClickBlock event) {
+        // 挖掘期间每tick都会触发，脏标记随之延长 / Fires every tick while mining, extending the dirty mark
+        if (event.getLevel() == cachedLevel) {
+            markDirty(event.getPos());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onRightClickBlock(PlayerInteractEvent.RightClickBlock event) {
+        if (event.getLevel() == cachedLevel) {
+            markDirty(event.getPos());
+            if (event.getFace() != null) {
+                markDirty(event.getPos().relative(event.getFace())); // 放置的方块在点击面外侧 / A placed block goes outside the clicked face
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        COLUMNS.clear();
+        DIRTY.clear();
+        cachedLevel = null;
+    }
+
+    /**
+     * 扫描玩家周围的方块，必须在客户端主线程调用 / Scan the blocks around the player; must be called on the client thread
+     */
+    public static Surroundings scan(Level level, BlockPos center, int radius) {
+        if (radius <= 0) {
+            return Surroundings.EMPTY;
+        }
+        if (level != cachedLevel) {
+            // 换了维度或世界 / Changed dimension or world
+            COLUMNS.clear();
+            DIRTY.clear();
+            cachedLevel = level;
+        }
+        int minX = SectionPos.blockToSectionCoord(center.getX() - radius);
+        int maxX = SectionPos.blockToSectionCoord(center.getX() + radius);
+        int minZ = SectionPos.blockToSectionCoord(center.getZ() - radius);
+        int maxZ = SectionPos.blockToSectionCoord(center.getZ() + radius);
+        int minY = Math.max(level.getMinSectionY(), SectionPos.blockToSectionCoord(center.getY() - radius));
+        int maxY = Math.min(level.getMaxSectionY(), SectionPos.blockToSectionCoord(center.getY() + radius));
+
+        Map<Block, Integer> totals = new IdentityHashMap<>();
+        Map<Block, Integer> featureCounts = new IdentityHashMap<>();
+        Map<Block, Long> nearest = new IdentityHashMap<>();
+        long now = System.currentTimeMillis();
+        DIRTY.values().removeIf(until -> until < now - Config.surroundingsCacheSeconds * 1000L);
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                LevelChunk chunk = level.getChunkSource().getChunkNow(x, z);
+                if (chunk == null) {
+                    continue; // 未加载的区块 / Chunk not loaded
+                }
+                Map<Integer, SectionSummary> column = COLUMNS.computeIfAbsent(ChunkPos.asLong(x, z), key -> new HashMap<>());
+                for (int y = minY; y <= maxY; y++) {
+                    SectionSummary summary = column.get(y);
+                    Long dirtyUntil = DIRTY.get(SectionPos.asLong(x, y, z));
+                    if (summary == null || summary.chunk() != chunk || now - summary.createdMillis() > Config.surroundingsCacheSeconds * 1000L
+                            || dirtyUntil != null && summary.createdMillis() <= dirtyUntil) {
+                        summary = summarize(chunk, x, y, z, now);
+                        column.put(y, summary);
+                    }
+                    summary.counts().forEach((block, count) -> totals.merge(block, count, Integer::sum));
+                    for (Map.Entry<Block, Long> sample : summary.samples().entrySet()) {
+                        featureCounts.merge(sample.getKey(), summary.counts().get(sample.getKey()), Integer::sum);
+                        Long best = nearest.get(sample.getKey());
+                        if (best == null || distanceSquared(center, sample.getValue()) < distanceSquared(center, best)) {
+                            nearest.put(sample.getKey(), sample.getValue());
+                        }
+                    }
+                }
+            }
+        }
+        return new Surroundings(histogram(totals), features(center, featureCounts, nearest));
+    }
+
+    /**
+     * 通过调色板统计一个区块段，只有含特征方块的段才逐格查找位置 / Count one section through its palette; only sections containing notable blocks are searched block by block
+     */
+    private static SectionSummary summarize(LevelChunk chunk, int sectionX, int sectionY, int sectionZ, long now) {
+        LevelChunkSection section = chunk.getSection(chunk.getSectionIndexFromSectionY(sectionY));
+        if (section.hasOnlyAir()) {
+            return new SectionSummary(chunk, Map.of(), Map.of(), now);
+        }
+        Map<Block, Integer> counts = new IdentityHashMap<>();
+        List<BlockState> notable = new ArrayList<>();
+        section.getStates().count((state, count) -> {
+            if (!state.isAir()) {
+                counts.merge(state.getBlock(), count, Integer::sum);
+                if (isNotable(state)) {
+                    notable.add(state);
+                }
+            }
+        });
+
+        Map<Block, Long> samples = new IdentityHashMap<>();
+        if (!notable.isEmpty()) {
+            int baseX = SectionPos.sectionToBlockCoord(sectionX);
+            int baseY = SectionPos.sectionToBlockCoord(sectionY);
+            int baseZ = SectionPos.sectionToBlockCoord(sectionZ);
+            int wanted = (int) notable.stream().map(BlockState::getBlock).distinct().count();
+            search:
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        BlockState state = section.getBlockState(x, y, z);
+                        if (!state.isAir() && isNotable(state) && !samples.containsKey(state.getBlock())) {
+                            samples.put(state.getBlock(), BlockPos.asLong(baseX + x, baseY + y, baseZ + z));
+                            if (samples.size() == wanted) {
+                                break search;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return new SectionSummary(chunk, counts, samples, now);
+    }
+
+    private static boolean isNotable(BlockState state) {
+        return NOTABLE_BLOCKS.contains(state.getBlock()) || state.is(Tags.Blocks.ORES);
+    }
+
+    private static List<String> histogram(Map<Block, Integer> totals) {
+        List<String> entries = new ArrayList<>();
+        totals.entrySet().stream()
+                .sorted(Map.Entry.<Block, Integer>comparingByValue().reversed())
+                .limit(MAX_HISTOGRAM_ENTRIES)
+                .forEach(entry -> entries.add(GameDataCollector.blockName(entry.getKey()) + " x" + entry.getValue()));
+        return entries;
+    }
+
+    /**
+     * 按最近位置排序的特征，如 "minecraft:lava x12 @3,60,-8" / Features sorted by nearest position, e.g. "minecraft:lava x12 @3,60,-8"
+     */
+    private static List<String> features(BlockPos center, Map<Block, Integer> counts, Map<Block, Long> nearest) {
+        List<String> entries = new ArrayList<>();
+        nearest.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> distanceSquared(center, entry.getValue())))
+                .limit(MAX_FEATURES)
+                .forEach(entry -> {
+                    long pos = entry.getValue();
+                    entries.add(GameDataCollector.blockName(entry.getKey()) + " x" + counts.get(entry.getKey())
+                            + " @" + BlockPos.getX(pos) + "," + BlockPos.getY(pos) + "," + BlockPos.getZ(pos));
+                });
+        return entries;
+    }
+
+    private static long distanceSquared(BlockPos center, long pos) {
+        long dx = BlockPos.getX(pos) - center.getX();
+        long dy = BlockPos.getY(pos) - center.getY();
+        long dz = BlockPos.getZ(pos) - center.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static void markDirty(BlockPos pos) {
+        DIRTY.put(SectionPos.asLong(pos), System.currentTimeMillis() + SETTLE_MILLIS);
+    }
+}
@@ -0,0 +1,90 @@
+package com.aicommand.deepseek;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶 - 按每分钟的额度匀速补充，突发请求在本地排队等待，而不是一起撞上服务商的 429
+ * Token Bucket - Refills evenly from a per-minute allowance, so bursts wait locally instead of all running into the provider's 429
+ *
+ * <p>桶的容量就是每分钟的额度；额度为0表示不限制。acquire 会阻塞调用线程，只应在虚拟线程上调用。
+ * The capacity is the per-minute allowance, and an allowance of 0 means unlimited. acquire blocks the calling thread, so only call it on a virtual thread.</p>
+ */
+public class TokenBucket {
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final long perMinute;
+    private double available;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucket(long perMinute) {
+        this.perMinute = perMinute;
+        this.available = perMinute;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    public boolean isUnlimited() {
+        return perMinute <= 0;
+    }
+
+    /**
+     * 取出指定数量的令牌，不够时等待补充；超过容量的请求按容量计算 / Take the given number of tokens, waiting for the refill when short; requests above the capacity count as the capacity
+     *
+     * @return 等待的纳秒数 / Nanoseconds spent waiting
+     */
+    public long acquire(long permits) throws InterruptedException {
+        long start = System.nanoTime();
+        long needed = Math.min(permits, perMinute);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (now - pausedUntilNanos < 0) {
+                    waitNanos = pausedUntilNanos - now;
+                } else if (isUnlimited()) {
+                    return now - start;
+                } else {
+                    refill(now);
+                    if (available >= needed) {
+                        available -= needed;
+                        return now - start;
+                    }
+                    waitNanos = (long) ((needed - available) * NANOS_PER_MINUTE / perMinute);
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * 退回多取的令牌，例如实际用量少于估算时 / Return tokens that were taken in excess, for example when actual usage was below the estimate
+     */
+    public synchronized void refund(long permits) {
+        if (!isUnlimited() && permits > 0) {
+            available = Math.min(perMinute, available + permits);
+        }
+    }
+
+    /**
+     * 服务商要求等待时，所有请求一起暂停，不限制的桶也一样 / When the provider asks to wait, every request pauses together, even on an unlimited bucket
+     */
+    public synchronized void pause(long nanos) {
+        long now = System.nanoTime();
+        if (now + nanos - pausedUntilNanos > 0) {
+            pausedUntilNanos = now + nanos;
+        }
+        if (!isUnlimited()) {
+            refill(now);
+            available = 0;
+        }
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            available = Math.min(perMinute, available + (double) elapsed * perMinute / NANOS_PER_MINUTE);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.aicommand.deepseek;
+
+/**
+ * 令牌估算 - 不依赖分词器，粗略估算文本的令牌数和UTF-8字节数
+ * Token Estimator - Roughly estimates token count and UTF-8 size of a text without a tokenizer
+ */
+public class TokenEstimator {
+    // 英文和符号大约每4个字符一个令牌，中日韩字符大约每个一个令牌 / ASCII is about 4 chars per token, CJK is about one token per char
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+
+    public static int estimateTokens(CharSequence text) {
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ascii++;
+            } else if (!Character.isLowSurrogate(c)) {
+                other++;
+            }
+        }
+        return (ascii + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN + other;
+    }
+
+    /**
+     * 不实际编码，计算UTF-8字节数 / Count UTF-8 bytes without actually encoding
+     */
+    public static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,100 @@
+package com.aicommand.deepseek;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * 一次请求的令牌用量，包括命中服务商提示缓存的部分 / Token usage of one request, including the part served from the provider's prompt cache
+ *
+ * @param promptTokens       提示令牌总数 / Total prompt tokens
+ * @param completionTokens   生成令牌数 / Completion tokens
+ * @param cachedPromptTokens 命中提示缓存的令牌数 / Prompt tokens served from the prompt cache
+ */
+public record TokenUsage(int promptTokens, int completionTokens, int cachedPromptTokens) {
+    public static final TokenUsage NONE = new TokenUsage(0, 0, 0);
+
+    /**
+     * 解析 usage 对象：DeepSeek 使用 prompt_cache_hit_tokens，OpenAI 使用 prompt_tokens_details.cached_tokens
+     * Parse a usage object: DeepSeek reports prompt_cache_hit_tokens, OpenAI reports prompt_tokens_details.cached_tokens
+     */
+    public static TokenUsage parse(JsonElement element) {
+        if (element == null || !element.isJsonObject()) {
+            return NONE;
+        }
+        JsonObject usage = element.getAsJsonObject();
+        int cached = intOf(usage, "prompt_cache_hit_tokens");
+        JsonElement details = usage.get("prompt_tokens_details");
+        if (details != null && details.isJsonObject()) {
+            cached = Math.max(cached, intOf(details.getAsJsonObject(), "cached_tokens"));
+        }
+        return new TokenUsage(intOf(usage, "prompt_tokens"), intOf(usage, "completion_tokens"), cached);
+    }
+
+    private static int intOf(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element == null || !element.isJsonPrimitive() ? 0 : element.getAsInt();
+    }
+
+    /**
+     * 从流中读取 usage 对象，字段含义与 {@link #parse} 相同，不认识的字段直接跳过 / Read a usage object from a stream; fields mean the same as in {@link #parse}, unknown ones are skipped
+     */
+    public static TokenUsage read(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return NONE;
+        }
+        int prompt = 0;
+        int completion = 0;
+        int cached = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "prompt_tokens" -> prompt = readInt(reader);
+                case "completion_tokens" -> completion = readInt(reader);
+                case "prompt_cache_hit_tokens" -> cached = Math.max(cached, readInt(reader));
+                case "prompt_tokens_details" -> cached = Math.max(cached, readCachedTokens(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TokenUsage(prompt, completion, cached);
+    }
+
+    private static int readCachedTokens(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return 0;
+        }
+        int cached = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("cached_tokens")) {
+                cached = readInt(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return cached;
+    }
+
+    private static int readInt(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.NUMBER) {
+            reader.skipValue();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+
+    public boolean isKnown() {
+        return promptTokens > 0;
+    }
+
+    public int uncachedPromptTokens() {
+        return promptTokens - cachedPromptTokens;
+    }
+}